@@ -0,0 +1,189 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of plugin calls that are waiting on the SDK. Calls that pass a
+ * `deadline` (milliseconds since the epoch) are rejected once it passes, and the
+ * SDK operation behind them is canceled where that is possible, so a callback
+ * that never arrives can't hold on to the call forever. A callback that does
+ * arrive after the deadline finds the call settled and must not settle it again.
+ */
+class CallWatchdog {
+
+  interface Listener {
+    void onStarted(PluginCall call);
+
+    /**
+     * Called when a call finishes, with the time it spent waiting on the SDK.
+     */
+    void onFinished(String method, long duration);
+
+    /**
+     * Called when a call is rejected because its deadline passed.
+     */
+    default void onExpired(PluginCall call) {}
+  }
+
+  // expired calls whose SDK callback hasn't arrived yet, bounded in case it
+  // never does
+  private static final int MAX_SETTLED = 64;
+
+  private static class Entry {
+
+    final PluginCall call;
+    final long startedAt = SystemClock.elapsedRealtime();
+    final Runnable cancel;
+
+    Entry(PluginCall call, Runnable cancel) {
+      this.call = call;
+      this.cancel = cancel;
+    }
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private final Set<String> settled = new LinkedHashSet<>();
+  private final Listener listener;
+
+  CallWatchdog() {
+    this(null);
+  }
+
+  CallWatchdog(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the call's deadline in milliseconds since the epoch, or
+   * `Long.MAX_VALUE` if it has none.
+   */
+  static long deadline(PluginCall call) {
+    Double deadline = call.getDouble("deadline");
+    return deadline != null ? deadline.longValue() : Long.MAX_VALUE;
+  }
+
+  void watch(PluginCall call) {
+    watch(call, null);
+  }
+
+  /**
+   * Starts tracking the call. `cancel` is run when the deadline passes and may
+   * be null if the operation can't be canceled.
+   */
+  void watch(PluginCall call, Runnable cancel) {
+    final Entry entry = new Entry(call, cancel);
+
+    synchronized (this) {
+      // a call is only tracked once, even if it is handed to the SDK again
+      if (entries.containsKey(call.getCallbackId())) {
+        return;
+      }
+      entries.put(call.getCallbackId(), entry);
+    }
+
+    if (listener != null) {
+      listener.onStarted(call);
+    }
+
+    Double deadline = call.getDouble("deadline");
+    if (deadline != null) {
+      long delay = deadline.longValue() - System.currentTimeMillis();
+      handler.postAtTime(
+        () -> expire(entry),
+        entry,
+        SystemClock.uptimeMillis() + Math.max(delay, 0)
+      );
+    }
+  }
+
+  /**
+   * Stops tracking the call. Returns false if the call was already rejected
+   * because its deadline passed, in which case the caller must not resolve or
+   * reject it.
+   */
+  boolean finish(PluginCall call) {
+    Entry entry;
+
+    synchronized (this) {
+      if (settled.remove(call.getCallbackId())) {
+        return false;
+      }
+      entry = entries.remove(call.getCallbackId());
+    }
+
+    if (entry != null) {
+      handler.removeCallbacksAndMessages(entry);
+
+      if (listener != null) {
+        listener.onFinished(
+          call.getMethodName(),
+          SystemClock.elapsedRealtime() - entry.startedAt
+        );
+      }
+    }
+
+    return true;
+  }
+
+  private void expire(Entry entry) {
+    synchronized (this) {
+      if (entries.remove(entry.call.getCallbackId()) == null) {
+        return;
+      }
+
+      // the SDK may still call back later, finish tells it the call is settled
+      settled.add(entry.call.getCallbackId());
+      if (settled.size() > MAX_SETTLED) {
+        Iterator<String> oldest = settled.iterator();
+        oldest.next();
+        oldest.remove();
+      }
+    }
+
+    if (listener != null) {
+      listener.onExpired(entry.call);
+    }
+
+    entry.call.reject(
+      entry.call.getMethodName() + " did not complete before its deadline",
+      "DEADLINE_EXCEEDED"
+    );
+
+    if (entry.cancel != null) {
+      entry.cancel.run();
+    }
+  }
+
+  synchronized JSObject serialize() {
+    long now = SystemClock.elapsedRealtime();
+    long oldestAge = 0;
+
+    JSArray calls = new JSArray();
+    for (Entry entry : entries.values()) {
+      long age = now - entry.startedAt;
+      oldestAge = Math.max(oldestAge, age);
+
+      JSObject call = new JSObject();
+      call.put("method", entry.call.getMethodName());
+      call.put("age", age);
+      calls.put(call);
+    }
+
+    JSObject ret = new JSObject();
+    ret.put("outstanding", entries.size());
+    ret.put("oldestAge", oldestAge);
+    ret.put("calls", calls);
+    return ret;
+  }
+}
@@ -0,0 +1,58 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+
+/**
+ * Fails fast once an operation has failed with transient errors too many times
+ * in a row. After `resetTimeout` a single attempt is let through again, and its
+ * result decides whether the circuit closes or stays open.
+ */
+class CircuitBreaker {
+
+  // 0 disables the breaker
+  int failureThreshold = 0;
+  long resetTimeout = 30 * 1000;
+
+  private int failures = 0;
+  private long openedAt = 0;
+
+  synchronized boolean allowRequest() {
+    if (openedAt == 0) {
+      return true;
+    }
+
+    if (now() - openedAt >= resetTimeout) {
+      // half open: let this request through, a failure opens the circuit again
+      openedAt = now();
+      return true;
+    }
+
+    return false;
+  }
+
+  synchronized void onSuccess() {
+    failures = 0;
+    openedAt = 0;
+  }
+
+  synchronized void onFailure() {
+    failures++;
+
+    if (failureThreshold > 0 && failures >= failureThreshold) {
+      openedAt = now();
+    }
+  }
+
+  // overridden in tests
+  long now() {
+    return SystemClock.elapsedRealtime();
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("open", openedAt != 0);
+    ret.put("failures", failures);
+    return ret;
+  }
+}
@@ -0,0 +1,85 @@
+package io.event1.capacitorstripeterminal;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Bounded in-memory log of the plugin's own diagnostics, such as SDK failures
+ * and connection callbacks. The SDK's internal logging can't be captured, it
+ * only goes to Logcat. Once it is full the oldest lines are overwritten, so
+ * capturing costs the same no matter how long the app has been running. Lines
+ * are only formatted when they are exported.
+ */
+class DiagnosticLog {
+
+  static final int DEFAULT_CAPACITY = 500;
+
+  private long[] times;
+  private String[] levels;
+  private String[] messages;
+  private int next = 0;
+  private int size = 0;
+
+  DiagnosticLog() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  DiagnosticLog(int capacity) {
+    allocate(capacity);
+  }
+
+  private void allocate(int capacity) {
+    times = new long[capacity];
+    levels = new String[capacity];
+    messages = new String[capacity];
+    next = 0;
+    size = 0;
+  }
+
+  synchronized void setCapacity(int capacity) {
+    if (capacity > 0 && capacity != messages.length) {
+      allocate(capacity);
+    }
+  }
+
+  synchronized void log(String level, String message) {
+    times[next] = System.currentTimeMillis();
+    levels[next] = level;
+    messages[next] = message;
+
+    next = (next + 1) % messages.length;
+    size = Math.min(size + 1, messages.length);
+  }
+
+  void debug(String message) {
+    log("debug", message);
+  }
+
+  void error(String message, Throwable t) {
+    log("error", t != null ? message + ": " + t : message);
+  }
+
+  /**
+   * Returns the captured lines, oldest first.
+   */
+  synchronized JSArray export() {
+    JSArray lines = new JSArray();
+    int start = (next - size + messages.length) % messages.length;
+
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % messages.length;
+
+      JSObject line = new JSObject();
+      line.put("time", times[index]);
+      line.put("level", levels[index]);
+      line.put("message", messages[index]);
+      lines.put(line);
+    }
+
+    return lines;
+  }
+
+  synchronized void clear() {
+    allocate(messages.length);
+  }
+}
@@ -0,0 +1,80 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.stripe.stripeterminal.external.models.DiscoveryConfiguration;
+
+/**
+ * Tracks a single `discoverReaders` call across its scan and pause windows so
+ * discovery can be duty-cycled and stopped on a timeout.
+ */
+class DiscoverySession {
+
+  final PluginCall call;
+  final DiscoveryConfiguration configuration;
+
+  // all durations are in milliseconds, 0 disables the behavior
+  final long timeout;
+  final long scanDuration;
+  final long pauseDuration;
+
+  final long startedAt = SystemClock.elapsedRealtime();
+  long scanStartedAt = 0;
+  long scanTime = 0;
+  int scanCount = 0;
+
+  // set while the SDK discovery is being canceled on purpose (pause or finish)
+  boolean pausing = false;
+  boolean finished = false;
+
+  // a connect to a reader only shown from the cache, waiting for this
+  // discovery to report it
+  PluginCall cachedConnect = null;
+
+  DiscoverySession(
+    PluginCall call,
+    DiscoveryConfiguration configuration,
+    long timeout,
+    long scanDuration,
+    long pauseDuration
+  ) {
+    this.call = call;
+    this.configuration = configuration;
+    this.timeout = timeout;
+    this.scanDuration = scanDuration;
+    this.pauseDuration = pauseDuration;
+  }
+
+  boolean isDutyCycled() {
+    return scanDuration > 0 && pauseDuration > 0;
+  }
+
+  boolean isScanning() {
+    return scanStartedAt > 0;
+  }
+
+  void startScan() {
+    pausing = false;
+    scanStartedAt = SystemClock.elapsedRealtime();
+    scanCount++;
+  }
+
+  void stopScan() {
+    if (scanStartedAt > 0) {
+      scanTime += SystemClock.elapsedRealtime() - scanStartedAt;
+      scanStartedAt = 0;
+    }
+  }
+
+  JSObject serialize(String reason) {
+    stopScan();
+
+    JSObject ret = new JSObject();
+    ret.put("reason", reason);
+    ret.put("scanTime", scanTime);
+    ret.put("totalTime", SystemClock.elapsedRealtime() - startedAt);
+    ret.put("scanCount", scanCount);
+    return ret;
+  }
+}
@@ -0,0 +1,96 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects events that arrive within a short window and delivers them to JS as
+ * a single ordered `terminalEvents` batch, so a burst of reader callbacks costs
+ * one bridge evaluation instead of one per event. Only events JS has said it
+ * can unpack are batched.
+ */
+class EventBatcher {
+
+  interface Sender {
+    void send(JSObject batch);
+  }
+
+  static final String EVENT_NAME = "terminalEvents";
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Sender sender;
+
+  private long window = 0;
+  private Set<String> eventNames = new HashSet<>();
+  private JSArray pending = null;
+
+  private final Runnable flushTask = this::flush;
+
+  EventBatcher(Sender sender) {
+    this.sender = sender;
+  }
+
+  /**
+   * A window of 0 turns batching off.
+   */
+  synchronized void configure(long window, Set<String> eventNames) {
+    this.window = window;
+    this.eventNames = eventNames;
+
+    if (window <= 0) {
+      handler.removeCallbacks(flushTask);
+      handler.post(flushTask);
+    }
+  }
+
+  /**
+   * Queues the event and returns true if it is batched. Otherwise any pending
+   * batch is sent right away, so the caller's event can't overtake it.
+   */
+  boolean offer(String eventName, JSObject data) {
+    synchronized (this) {
+      if (window > 0 && eventNames.contains(eventName)) {
+        JSObject event = new JSObject();
+        event.put("eventName", eventName);
+        event.put("data", data);
+
+        if (pending == null) {
+          pending = new JSArray();
+          handler.postDelayed(flushTask, window);
+        }
+        pending.put(event);
+        return true;
+      }
+    }
+
+    flush();
+    return false;
+  }
+
+  void flush() {
+    JSArray events;
+
+    synchronized (this) {
+      events = pending;
+      pending = null;
+      handler.removeCallbacks(flushTask);
+    }
+
+    if (events != null) {
+      JSObject batch = new JSObject();
+      batch.put("events", events);
+      sender.send(batch);
+    }
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("window", window);
+    ret.put("events", new JSArray(eventNames));
+    return ret;
+  }
+}
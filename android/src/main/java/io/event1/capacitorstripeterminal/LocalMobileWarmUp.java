@@ -0,0 +1,235 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.Terminal;
+import com.stripe.stripeterminal.external.callable.Callback;
+import com.stripe.stripeterminal.external.callable.Cancelable;
+import com.stripe.stripeterminal.external.callable.DiscoveryListener;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.LocalMobileConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.DiscoveryConfiguration;
+import com.stripe.stripeterminal.external.models.DiscoveryMethod;
+import com.stripe.stripeterminal.external.models.Reader;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.List;
+
+/**
+ * Discovers and connects the Tap to Pay (local mobile) reader in the background
+ * right after initialization, so the SDK has finished preparing by the time the
+ * first customer taps. The reader is reconnected the same way if it is lost.
+ */
+class LocalMobileWarmUp implements DiscoveryListener {
+
+  interface Listener {
+    void onWarmUpFinished(Reader reader, JSObject result);
+  }
+
+  static final String IDLE = "idle";
+  static final String DISCOVERING = "discovering";
+  static final String CONNECTING = "connecting";
+  static final String READY = "ready";
+  static final String FAILED = "failed";
+
+  private final Listener listener;
+
+  private String locationId = null;
+  private boolean simulated = false;
+  private String state = IDLE;
+  private Cancelable discovery = null;
+
+  private long startedAt = 0;
+  private long discoveryTime = 0;
+  private long connectTime = 0;
+  private String serialNumber = null;
+  private String error = null;
+
+  LocalMobileWarmUp(Listener listener) {
+    this.listener = listener;
+  }
+
+  synchronized boolean isEnabled() {
+    return locationId != null;
+  }
+
+  synchronized boolean isReady() {
+    return READY.equals(state);
+  }
+
+  /**
+   * Starts warming up the reader for the location. Does nothing while a
+   * warm-up is already running or the reader is ready.
+   */
+  synchronized void start(@NonNull String locationId, boolean simulated) {
+    this.locationId = locationId;
+    this.simulated = simulated;
+
+    if (DISCOVERING.equals(state) || CONNECTING.equals(state) || isReady()) {
+      return;
+    }
+
+    state = DISCOVERING;
+    startedAt = SystemClock.elapsedRealtime();
+    discoveryTime = 0;
+    connectTime = 0;
+    serialNumber = null;
+    error = null;
+
+    final DiscoveryListener discoveryListener = this;
+    discovery =
+      Terminal
+        .getInstance()
+        .discoverReaders(
+          new DiscoveryConfiguration(
+            0,
+            DiscoveryMethod.LOCAL_MOBILE,
+            simulated
+          ),
+          discoveryListener,
+          new Callback() {
+            @Override
+            public void onSuccess() {}
+
+            @Override
+            public void onFailure(@NonNull TerminalException e) {
+              fail(DISCOVERING, e);
+            }
+          }
+        );
+  }
+
+  /**
+   * Restarts the warm-up after the warmed-up reader was lost.
+   */
+  synchronized void restart() {
+    if (
+      !isEnabled() || DISCOVERING.equals(state) || CONNECTING.equals(state)
+    ) {
+      return;
+    }
+
+    state = IDLE;
+    start(locationId, simulated);
+  }
+
+  /**
+   * Stops a warm-up discovery so another discovery can run. A reader that is
+   * already connecting or connected is left alone.
+   */
+  synchronized void cancelDiscovery() {
+    if (DISCOVERING.equals(state)) {
+      stopDiscovery();
+      state = IDLE;
+    }
+  }
+
+  synchronized void disable() {
+    cancelDiscovery();
+    locationId = null;
+  }
+
+  /**
+   * Called when the reader was disconnected on purpose, so it is no longer
+   * reported as ready.
+   */
+  synchronized void onDisconnected() {
+    if (isReady()) {
+      state = IDLE;
+    }
+  }
+
+  private void stopDiscovery() {
+    final Cancelable cancelable = discovery;
+    discovery = null;
+
+    if (cancelable != null && !cancelable.isCompleted()) {
+      cancelable.cancel(
+        new Callback() {
+          @Override
+          public void onSuccess() {}
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {}
+        }
+      );
+    }
+  }
+
+  @Override
+  public void onUpdateDiscoveredReaders(@NonNull List<Reader> list) {
+    final Reader reader;
+
+    synchronized (this) {
+      if (!DISCOVERING.equals(state) || list.isEmpty()) {
+        return;
+      }
+
+      reader = list.get(0);
+      state = CONNECTING;
+      discoveryTime = SystemClock.elapsedRealtime() - startedAt;
+      stopDiscovery();
+    }
+
+    final long connectStartedAt = SystemClock.elapsedRealtime();
+
+    TerminalOperations
+      .connectLocalMobileReader(
+        reader,
+        new LocalMobileConnectionConfiguration(locationId)
+      )
+      .whenComplete(
+        (connectedReader, e) -> {
+          if (e != null) {
+            fail(CONNECTING, e);
+            return;
+          }
+
+          JSObject result;
+          synchronized (this) {
+            if (!CONNECTING.equals(state)) {
+              return;
+            }
+
+            state = READY;
+            connectTime = SystemClock.elapsedRealtime() - connectStartedAt;
+            serialNumber = connectedReader.getSerialNumber();
+            result = serialize();
+          }
+
+          listener.onWarmUpFinished(connectedReader, result);
+        }
+      );
+  }
+
+  private void fail(String expectedState, TerminalException e) {
+    JSObject result;
+
+    synchronized (this) {
+      if (!expectedState.equals(state)) {
+        return;
+      }
+
+      state = FAILED;
+      error = e.getErrorMessage();
+      result = serialize();
+    }
+
+    listener.onWarmUpFinished(null, result);
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("state", state);
+    ret.put("discoveryTime", discoveryTime);
+    ret.put("connectTime", connectTime);
+    ret.put("totalTime", READY.equals(state) ? discoveryTime + connectTime : 0);
+
+    if (serialNumber != null) {
+      ret.put("serialNumber", serialNumber);
+    }
+    if (error != null) {
+      ret.put("error", error);
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,303 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregates plugin timings and event counts in memory and periodically appends
+ * them as one JSON line per snapshot to a file in the app's files directory.
+ * Recording is just a counter update, the snapshot and file write run on a
+ * background thread. Files are rotated by size and only a few are kept.
+ */
+class MetricsRecorder {
+
+  private static final String DIRECTORY = "stripe-terminal-metrics";
+  private static final String FILE_PREFIX = "metrics";
+  private static final String FILE_SUFFIX = ".jsonl";
+  // smaller limits would rotate on nearly every snapshot
+  private static final int MIN_FILE_SIZE = 1024;
+
+  interface PathsCallback {
+    void onPaths(JSArray paths);
+  }
+
+  private static class Timing {
+
+    long count = 0;
+    long total = 0;
+    long max = 0;
+
+    JSObject serialize() {
+      JSObject ret = new JSObject();
+      ret.put("count", count);
+      ret.put("total", total);
+      ret.put("max", max);
+      ret.put("avg", count > 0 ? total / count : 0);
+      return ret;
+    }
+  }
+
+  private final File directory;
+  private HandlerThread thread = null;
+  private Handler handler = null;
+
+  boolean enabled = false;
+  long interval = 60 * 1000;
+  long maxFileSize = 256 * 1024;
+  int maxFiles = 5;
+
+  private Map<String, Timing> timings = new HashMap<>();
+  private Map<String, Long> events = new HashMap<>();
+  private long periodStart = System.currentTimeMillis();
+
+  private final Runnable snapshot = this::writeSnapshot;
+
+  MetricsRecorder(File filesDir) {
+    directory = new File(filesDir, DIRECTORY);
+  }
+
+  synchronized void configure(PluginCall call) {
+    enabled = call.getBoolean("enabled", true);
+    // at least a second, a zero interval would re-post the snapshot in a loop
+    interval =
+      Math.max(call.getInt("interval", (int) (interval / 1000)), 1) * 1000L;
+    maxFileSize =
+      Math.max(call.getInt("maxFileSize", (int) maxFileSize), MIN_FILE_SIZE);
+    maxFiles = Math.max(call.getInt("maxFiles", maxFiles), 1);
+
+    if (enabled) {
+      start();
+      // on the background thread so it can't race a rotation
+      handler.post(this::deleteExtraFiles);
+    } else {
+      stop();
+      deleteExtraFiles();
+    }
+  }
+
+  private void start() {
+    if (thread == null) {
+      thread = new HandlerThread("StripeTerminalMetrics");
+      thread.start();
+      handler = new Handler(thread.getLooper());
+    }
+
+    handler.removeCallbacks(snapshot);
+    handler.postDelayed(snapshot, interval);
+  }
+
+  private void stop() {
+    if (thread != null) {
+      thread.quitSafely();
+      thread = null;
+      handler = null;
+    }
+
+    timings = new HashMap<>();
+    events = new HashMap<>();
+  }
+
+  synchronized void recordTiming(String name, long duration) {
+    if (!enabled) {
+      return;
+    }
+
+    Timing timing = timings.get(name);
+    if (timing == null) {
+      timing = new Timing();
+      timings.put(name, timing);
+    }
+
+    timing.count++;
+    timing.total += duration;
+    timing.max = Math.max(timing.max, duration);
+  }
+
+  synchronized void recordEvent(String name) {
+    if (!enabled) {
+      return;
+    }
+
+    Long count = events.get(name);
+    events.put(name, count != null ? count + 1 : 1);
+  }
+
+  /**
+   * Writes any pending snapshot and then calls `done` with the paths of the
+   * metrics files, oldest first. `done` is called on the background thread.
+   */
+  synchronized void flush(final PathsCallback done) {
+    if (handler == null) {
+      done.onPaths(listFiles());
+      return;
+    }
+
+    handler.removeCallbacks(snapshot);
+    handler.post(
+      () -> {
+        writeSnapshot();
+        done.onPaths(listFiles());
+      }
+    );
+  }
+
+  private void writeSnapshot() {
+    Map<String, Timing> currentTimings;
+    Map<String, Long> currentEvents;
+    long start;
+    long end = System.currentTimeMillis();
+
+    synchronized (this) {
+      if (!enabled) {
+        return;
+      }
+
+      currentTimings = timings;
+      currentEvents = events;
+      start = periodStart;
+
+      timings = new HashMap<>();
+      events = new HashMap<>();
+      periodStart = end;
+
+      handler.postDelayed(snapshot, interval);
+    }
+
+    // nothing happened, so there is nothing worth writing
+    if (currentTimings.isEmpty() && currentEvents.isEmpty()) {
+      return;
+    }
+
+    JSObject timingsObject = new JSObject();
+    for (Map.Entry<String, Timing> entry : currentTimings.entrySet()) {
+      timingsObject.put(entry.getKey(), entry.getValue().serialize());
+    }
+
+    JSObject eventsObject = new JSObject();
+    for (Map.Entry<String, Long> entry : currentEvents.entrySet()) {
+      eventsObject.put(entry.getKey(), entry.getValue());
+    }
+
+    JSObject line = new JSObject();
+    line.put("start", start);
+    line.put("end", end);
+    line.put("timings", timingsObject);
+    line.put("events", eventsObject);
+
+    append((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void append(byte[] line) {
+    if (!directory.exists() && !directory.mkdirs()) {
+      return;
+    }
+
+    long limit;
+    synchronized (this) {
+      limit = maxFileSize;
+    }
+
+    // a snapshot larger than the limit still goes into a file of its own
+    File current = file(0);
+    if (current.length() > 0 && current.length() + line.length > limit) {
+      rotate();
+    }
+
+    try (OutputStream stream = new FileOutputStream(current, true)) {
+      stream.write(line);
+    } catch (IOException e) {
+      // metrics are best effort, a failed write only loses one snapshot
+    }
+  }
+
+  /**
+   * Shifts metrics.jsonl to metrics.1.jsonl and so on, dropping the oldest file.
+   */
+  private void rotate() {
+    File oldest = file(maxFiles - 1);
+    if (oldest.exists()) {
+      oldest.delete();
+    }
+
+    for (int i = maxFiles - 2; i >= 0; i--) {
+      File source = file(i);
+      if (source.exists()) {
+        source.renameTo(file(i + 1));
+      }
+    }
+  }
+
+  /**
+   * Deletes rotated files beyond `maxFiles`, left over from a higher limit.
+   */
+  private void deleteExtraFiles() {
+    int limit;
+    synchronized (this) {
+      limit = maxFiles;
+    }
+
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    String prefix = FILE_PREFIX + ".";
+    for (File file : files) {
+      String name = file.getName();
+      if (!name.startsWith(prefix) || !name.endsWith(FILE_SUFFIX)) {
+        continue;
+      }
+
+      try {
+        String index = name.substring(
+          prefix.length(),
+          name.length() - FILE_SUFFIX.length()
+        );
+        if (Integer.parseInt(index) >= limit) {
+          file.delete();
+        }
+      } catch (NumberFormatException e) {
+        // not one of our rotated files
+      }
+    }
+  }
+
+  private File file(int index) {
+    String name = index == 0
+      ? FILE_PREFIX + FILE_SUFFIX
+      : FILE_PREFIX + "." + index + FILE_SUFFIX;
+    return new File(directory, name);
+  }
+
+  private JSArray listFiles() {
+    JSArray paths = new JSArray();
+
+    for (int i = maxFiles - 1; i >= 0; i--) {
+      File file = file(i);
+      if (file.exists()) {
+        paths.put(file.getAbsolutePath());
+      }
+    }
+
+    return paths;
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("enabled", enabled);
+    ret.put("interval", interval / 1000);
+    ret.put("maxFileSize", maxFileSize);
+    ret.put("maxFiles", maxFiles);
+    return ret;
+  }
+}
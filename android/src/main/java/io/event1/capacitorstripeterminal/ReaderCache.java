@@ -0,0 +1,67 @@
+package io.event1.capacitorstripeterminal;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Persists the serialized results of the last internet reader discovery per
+ * location so they can be shown before a live discovery has finished.
+ */
+class ReaderCache {
+
+  private static final String PREFS_NAME = "StripeTerminalReaderCache";
+  private static final String KEY_PREFIX = "readers:";
+
+  private final SharedPreferences prefs;
+
+  ReaderCache(Context context) {
+    prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+  }
+
+  private String key(String locationId) {
+    return KEY_PREFIX + (locationId != null ? locationId : "");
+  }
+
+  void put(String locationId, JSArray readers) {
+    JSObject entry = new JSObject();
+    entry.put("savedAt", System.currentTimeMillis());
+    entry.put("readers", readers);
+
+    prefs.edit().putString(key(locationId), entry.toString()).apply();
+  }
+
+  /**
+   * Returns the cached readers for the location, or null if there are none or
+   * they are older than the ttl (in milliseconds).
+   */
+  JSArray get(String locationId, long ttl) {
+    String json = prefs.getString(key(locationId), null);
+
+    if (json == null) {
+      return null;
+    }
+
+    try {
+      JSONObject entry = new JSONObject(json);
+      long savedAt = entry.getLong("savedAt");
+
+      if (System.currentTimeMillis() - savedAt > ttl) {
+        return null;
+      }
+
+      return new JSArray(entry.getJSONArray("readers").toString());
+    } catch (JSONException e) {
+      // drop anything we can't read back
+      prefs.edit().remove(key(locationId)).apply();
+      return null;
+    }
+  }
+
+  void clear() {
+    prefs.edit().clear().apply();
+  }
+}
@@ -0,0 +1,110 @@
+package io.event1.capacitorstripeterminal;
+
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.BluetoothConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.HandoffConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.InternetConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.LocalMobileConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.UsbConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.Reader;
+
+/**
+ * How a reader was connected: its connection type and configuration. Kept for
+ * the connected reader so the plugin can connect it again, or connect another
+ * reader the same way, without going back to JS.
+ */
+class ReaderConnection {
+
+  static final String INTERNET = "internet";
+  static final String BLUETOOTH = "bluetooth";
+  static final String USB = "usb";
+  static final String LOCAL_MOBILE = "localMobile";
+  static final String HANDOFF = "handoff";
+
+  private interface Connector {
+    TerminalFuture<Reader> connect(Reader reader);
+  }
+
+  final String type;
+  final Reader reader;
+  private final Connector connector;
+
+  private ReaderConnection(String type, Reader reader, Connector connector) {
+    this.type = type;
+    this.reader = reader;
+    this.connector = connector;
+  }
+
+  static ReaderConnection internet(
+    Reader reader,
+    InternetConnectionConfiguration config
+  ) {
+    return new ReaderConnection(
+      INTERNET,
+      reader,
+      r -> TerminalOperations.connectInternetReader(r, config)
+    );
+  }
+
+  static ReaderConnection bluetooth(
+    Reader reader,
+    BluetoothConnectionConfiguration config
+  ) {
+    return new ReaderConnection(
+      BLUETOOTH,
+      reader,
+      r ->
+        TerminalOperations.connectBluetoothReader(
+          r,
+          config,
+          TerminalHost.INSTANCE
+        )
+    );
+  }
+
+  static ReaderConnection usb(Reader reader, UsbConnectionConfiguration config) {
+    return new ReaderConnection(
+      USB,
+      reader,
+      r -> TerminalOperations.connectUsbReader(r, config, TerminalHost.INSTANCE)
+    );
+  }
+
+  static ReaderConnection localMobile(
+    Reader reader,
+    LocalMobileConnectionConfiguration config
+  ) {
+    return new ReaderConnection(
+      LOCAL_MOBILE,
+      reader,
+      r -> TerminalOperations.connectLocalMobileReader(r, config)
+    );
+  }
+
+  static ReaderConnection handoff(
+    Reader reader,
+    HandoffConnectionConfiguration config
+  ) {
+    return new ReaderConnection(
+      HANDOFF,
+      reader,
+      r ->
+        TerminalOperations.connectHandoffReader(r, config, TerminalHost.INSTANCE)
+    );
+  }
+
+  String getSerialNumber() {
+    return reader.getSerialNumber();
+  }
+
+  /**
+   * The same configuration for another reader, or for the reader object the
+   * SDK returned on connect.
+   */
+  ReaderConnection withReader(Reader connected) {
+    return new ReaderConnection(type, connected, connector);
+  }
+
+  TerminalFuture<Reader> connect() {
+    return connector.connect(reader);
+  }
+}
@@ -0,0 +1,137 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.Reader;
+
+/**
+ * Keeps a backup reader on standby. When the connected reader disconnects
+ * unexpectedly, the backup is connected straight away with the configuration
+ * the failed reader was connected with, so the lane is back up without waiting
+ * for JS. After a successful failover the failed reader becomes the backup.
+ */
+class ReaderFailover {
+
+  interface Listener {
+    /**
+     * Called with the result of the failover, and the new connection if it
+     * succeeded.
+     */
+    void onFailover(JSObject result, ReaderConnection connection);
+  }
+
+  private String backupSerialNumber = null;
+  private boolean inProgress = false;
+  private int failovers = 0;
+  private int failures = 0;
+  private JSObject lastFailover = null;
+
+  synchronized void setBackupSerialNumber(String serialNumber) {
+    backupSerialNumber = serialNumber;
+  }
+
+  synchronized String getBackupSerialNumber() {
+    return backupSerialNumber;
+  }
+
+  synchronized boolean isInProgress() {
+    return inProgress;
+  }
+
+  /**
+   * Whether a backup other than the failed reader is designated.
+   */
+  synchronized boolean canFailOver(ReaderConnection failed) {
+    return (
+      !inProgress &&
+      failed != null &&
+      backupSerialNumber != null &&
+      !backupSerialNumber.equals(failed.getSerialNumber())
+    );
+  }
+
+  /**
+   * Connects the backup reader the way the failed one was connected. `backup`
+   * is the backup as last discovered, or null if it wasn't found.
+   */
+  void start(
+    final ReaderConnection failed,
+    final Reader backup,
+    final Listener listener
+  ) {
+    final long startedAt = SystemClock.elapsedRealtime();
+    final JSObject result = new JSObject();
+
+    synchronized (this) {
+      inProgress = true;
+      result.put("from", failed.getSerialNumber());
+      result.put("to", backupSerialNumber);
+      result.put("type", failed.type);
+    }
+
+    if (backup == null) {
+      result.put("error", "Backup reader was not discovered");
+      finish(result, startedAt, null, null, listener);
+      return;
+    }
+
+    final ReaderConnection connection = failed.withReader(backup);
+
+    connection
+      .connect()
+      .whenComplete(
+        (reader, e) -> {
+          if (e != null) {
+            result.put("error", e.getErrorMessage());
+            result.put("code", e.getErrorCode().toString());
+            finish(result, startedAt, failed, null, listener);
+            return;
+          }
+
+          finish(
+            result,
+            startedAt,
+            failed,
+            connection.withReader(reader),
+            listener
+          );
+        }
+      );
+  }
+
+  private void finish(
+    JSObject result,
+    long startedAt,
+    ReaderConnection failed,
+    ReaderConnection connected,
+    Listener listener
+  ) {
+    result.put("duration", SystemClock.elapsedRealtime() - startedAt);
+    result.put("time", System.currentTimeMillis());
+
+    synchronized (this) {
+      inProgress = false;
+      lastFailover = result;
+
+      if (connected != null) {
+        failovers++;
+        // the failed reader is the standby now, in case the backup goes too
+        backupSerialNumber = failed.getSerialNumber();
+      } else {
+        failures++;
+      }
+    }
+
+    listener.onFailover(result, connected);
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("backupSerialNumber", backupSerialNumber);
+    ret.put("inProgress", inProgress);
+    ret.put("failovers", failovers);
+    ret.put("failures", failures);
+    ret.put("lastFailover", lastFailover);
+    return ret;
+  }
+}
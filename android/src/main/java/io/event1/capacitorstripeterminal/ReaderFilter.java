@@ -0,0 +1,159 @@
+package io.event1.capacitorstripeterminal;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Discovery filter applied natively so readers that JS is not interested in are
+ * never serialized or sent over the bridge.
+ */
+class ReaderFilter {
+
+  // JS device type values, see TerminalUtils.translateDeviceTypeToJS
+  final Set<Integer> deviceTypes = new HashSet<>();
+  String locationId = null;
+  String labelPrefix = null;
+  boolean onlineOnly = false;
+
+  static ReaderFilter fromJSObject(JSObject object) throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+
+    if (object == null) {
+      return filter;
+    }
+
+    JSONArray deviceTypes = object.optJSONArray("deviceTypes");
+    if (deviceTypes != null) {
+      for (int i = 0; i < deviceTypes.length(); i++) {
+        filter.deviceTypes.add(deviceTypes.getInt(i));
+      }
+    }
+
+    filter.locationId = object.getString("locationId");
+    filter.labelPrefix = object.getString("labelPrefix");
+    filter.onlineOnly = object.getBool("onlineOnly", false);
+
+    return filter;
+  }
+
+  boolean isEmpty() {
+    return (
+      deviceTypes.isEmpty() &&
+      locationId == null &&
+      labelPrefix == null &&
+      !onlineOnly
+    );
+  }
+
+  boolean matches(Reader reader) {
+    if (reader == null) {
+      return false;
+    }
+
+    if (
+      !deviceTypes.isEmpty() &&
+      !deviceTypes.contains(
+        TerminalUtils.translateDeviceTypeToJS(reader.getDeviceType().ordinal())
+      )
+    ) {
+      return false;
+    }
+
+    if (
+      locationId != null &&
+      (
+        reader.getLocation() == null ||
+        !locationId.equals(reader.getLocation().getId())
+      )
+    ) {
+      return false;
+    }
+
+    if (
+      labelPrefix != null &&
+      (reader.getLabel() == null || !reader.getLabel().startsWith(labelPrefix))
+    ) {
+      return false;
+    }
+
+    return !onlineOnly || reader.getNetworkStatus() == Reader.NetworkStatus.ONLINE;
+  }
+
+  /**
+   * The same checks for a reader serialized by `TerminalUtils.serializeReader`,
+   * such as one read back from the `ReaderCache`.
+   */
+  boolean matches(JSONObject reader) {
+    if (reader == null) {
+      return false;
+    }
+
+    if (
+      !deviceTypes.isEmpty() &&
+      !deviceTypes.contains(reader.optInt("deviceType", -1))
+    ) {
+      return false;
+    }
+
+    if (
+      locationId != null && !locationId.equals(optString(reader, "locationId"))
+    ) {
+      return false;
+    }
+
+    String label = optString(reader, "label");
+    if (
+      labelPrefix != null && (label == null || !label.startsWith(labelPrefix))
+    ) {
+      return false;
+    }
+
+    // 1 is ReaderNetworkStatus.Online, see TerminalUtils.translateNetworkStatusToJS
+    return !onlineOnly || reader.optInt("status") == 1;
+  }
+
+  private static String optString(JSONObject object, String key) {
+    return object.isNull(key) ? null : object.optString(key);
+  }
+
+  JSArray apply(JSONArray readers) {
+    JSArray filtered = new JSArray();
+
+    if (readers == null) {
+      return filtered;
+    }
+
+    for (int i = 0; i < readers.length(); i++) {
+      JSONObject reader = readers.optJSONObject(i);
+      if (matches(reader)) {
+        filtered.put(reader);
+      }
+    }
+
+    return filtered;
+  }
+
+  List<Reader> apply(List<? extends Reader> readers) {
+    List<Reader> filtered = new ArrayList<>();
+
+    if (readers == null) {
+      return filtered;
+    }
+
+    for (Reader reader : readers) {
+      if (matches(reader)) {
+        filtered.add(reader);
+      }
+    }
+
+    return filtered;
+  }
+}
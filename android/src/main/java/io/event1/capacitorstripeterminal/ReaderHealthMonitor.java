@@ -0,0 +1,262 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.stripe.stripeterminal.external.models.ConnectionStatus;
+import com.stripe.stripeterminal.external.models.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Watches the connected internet reader between sales. At each interval it
+ * probes the reader with a cheap round trip (clearing its display), records
+ * how long the probe took, and after enough failed probes in a row reconnects
+ * the reader while it is idle, so the next sale doesn't find it stale. It also
+ * keeps the recent connection status transitions.
+ */
+class ReaderHealthMonitor {
+
+  static final String HEALTHY = "healthy";
+  static final String DEGRADED = "degraded";
+  static final String RECONNECTING = "reconnecting";
+  static final String DISCONNECTED = "disconnected";
+
+  private static final int MAX_SAMPLES = 60;
+  private static final int MAX_TRANSITIONS = 20;
+
+  interface Host {
+    /**
+     * Whether the reader can be probed or reconnected without getting in the
+     * way of a sale.
+     */
+    boolean isIdle();
+
+    ReaderConnection getConnection();
+
+    /**
+     * Disconnects and connects the reader again with its original
+     * configuration.
+     */
+    TerminalFuture<Reader> reconnect(ReaderConnection connection);
+
+    void onHealthChanged(JSObject health);
+  }
+
+  private final Host host;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  boolean enabled = false;
+  long interval = 30 * 1000;
+  int failureThreshold = 2;
+  boolean reconnect = true;
+
+  private String state = DISCONNECTED;
+  private int consecutiveFailures = 0;
+  private long probes = 0;
+  private long failures = 0;
+  private long reconnects = 0;
+  private long lastReconnectTime = -1;
+  private long latencyTotal = 0;
+  private long latencyMax = 0;
+  private final Deque<JSObject> samples = new ArrayDeque<>();
+  private final Deque<JSObject> transitions = new ArrayDeque<>();
+  private boolean probing = false;
+
+  private final Runnable tick = this::tick;
+
+  ReaderHealthMonitor(Host host) {
+    this.host = host;
+  }
+
+  synchronized void configure(PluginCall call) {
+    enabled = call.getBoolean("enabled", true);
+    interval =
+      Math.max(call.getInt("interval", (int) (interval / 1000)), 1) * 1000L;
+    failureThreshold =
+      Math.max(call.getInt("failureThreshold", failureThreshold), 1);
+    reconnect = call.getBoolean("reconnect", reconnect);
+
+    handler.removeCallbacks(tick);
+    if (enabled) {
+      handler.postDelayed(tick, interval);
+    }
+  }
+
+  synchronized void onConnectionStatusChange(ConnectionStatus status) {
+    JSObject transition = new JSObject();
+    transition.put("status", status.name().toLowerCase());
+    transition.put("time", System.currentTimeMillis());
+    transitions.addLast(transition);
+    if (transitions.size() > MAX_TRANSITIONS) {
+      transitions.removeFirst();
+    }
+
+    if (status == ConnectionStatus.CONNECTED) {
+      consecutiveFailures = 0;
+      setState(HEALTHY);
+    } else if (
+      status == ConnectionStatus.NOT_CONNECTED && !RECONNECTING.equals(state)
+    ) {
+      setState(DISCONNECTED);
+    }
+  }
+
+  private void tick() {
+    synchronized (this) {
+      if (!enabled) {
+        return;
+      }
+      handler.postDelayed(tick, interval);
+
+      if (probing || RECONNECTING.equals(state)) {
+        return;
+      }
+    }
+
+    ReaderConnection connection = host.getConnection();
+
+    // only internet readers are probed, the others report their state
+    // through the SDK's own callbacks
+    if (
+      connection == null ||
+      !ReaderConnection.INTERNET.equals(connection.type) ||
+      !host.isIdle()
+    ) {
+      return;
+    }
+
+    probe(connection);
+  }
+
+  private void probe(final ReaderConnection connection) {
+    final long startedAt = SystemClock.elapsedRealtime();
+
+    synchronized (this) {
+      probing = true;
+    }
+
+    TerminalOperations
+      .clearReaderDisplay()
+      .whenComplete(
+        (result, e) -> {
+          long latency = SystemClock.elapsedRealtime() - startedAt;
+          boolean shouldReconnect;
+
+          synchronized (this) {
+            probing = false;
+            probes++;
+            addSample(latency, e == null);
+
+            if (e == null) {
+              consecutiveFailures = 0;
+              latencyTotal += latency;
+              latencyMax = Math.max(latencyMax, latency);
+              setState(HEALTHY);
+              return;
+            }
+
+            failures++;
+            consecutiveFailures++;
+            setState(DEGRADED);
+            shouldReconnect =
+              reconnect && consecutiveFailures >= failureThreshold;
+          }
+
+          if (shouldReconnect && host.isIdle()) {
+            reconnect(connection);
+          }
+        }
+      );
+  }
+
+  private void reconnect(ReaderConnection connection) {
+    final long startedAt = SystemClock.elapsedRealtime();
+
+    synchronized (this) {
+      setState(RECONNECTING);
+    }
+
+    host
+      .reconnect(connection)
+      .whenComplete(
+        (reader, e) -> {
+          synchronized (this) {
+            reconnects++;
+            lastReconnectTime = SystemClock.elapsedRealtime() - startedAt;
+
+            if (e == null) {
+              consecutiveFailures = 0;
+              setState(HEALTHY);
+            } else {
+              setState(DEGRADED);
+            }
+          }
+        }
+      );
+  }
+
+  private void addSample(long latency, boolean ok) {
+    JSObject sample = new JSObject();
+    sample.put("time", System.currentTimeMillis());
+    sample.put("latency", latency);
+    sample.put("ok", ok);
+    samples.addLast(sample);
+    if (samples.size() > MAX_SAMPLES) {
+      samples.removeFirst();
+    }
+  }
+
+  // called with the lock held
+  private void setState(String next) {
+    if (state.equals(next)) {
+      return;
+    }
+
+    state = next;
+    final JSObject health = serialize();
+    handler.post(() -> host.onHealthChanged(health));
+  }
+
+  synchronized void reset() {
+    consecutiveFailures = 0;
+    probes = 0;
+    failures = 0;
+    reconnects = 0;
+    lastReconnectTime = -1;
+    latencyTotal = 0;
+    latencyMax = 0;
+    samples.clear();
+  }
+
+  synchronized JSObject serialize() {
+    long successes = probes - failures;
+
+    JSObject latency = new JSObject();
+    latency.put(
+      "last",
+      samples.isEmpty() ? -1 : samples.getLast().optLong("latency")
+    );
+    latency.put("avg", successes > 0 ? latencyTotal / successes : -1);
+    latency.put("max", latencyMax);
+
+    JSObject ret = new JSObject();
+    ret.put("enabled", enabled);
+    ret.put("interval", interval / 1000);
+    ret.put("failureThreshold", failureThreshold);
+    ret.put("reconnect", reconnect);
+    ret.put("state", state);
+    ret.put("consecutiveFailures", consecutiveFailures);
+    ret.put("probes", probes);
+    ret.put("failures", failures);
+    ret.put("reconnects", reconnects);
+    ret.put("lastReconnectTime", lastReconnectTime);
+    ret.put("latency", latency);
+    ret.put("samples", new JSArray(samples));
+    ret.put("transitions", new JSArray(transitions));
+    return ret;
+  }
+}
@@ -0,0 +1,223 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.stripe.stripeterminal.Terminal;
+import java.util.Random;
+
+/**
+ * Reconnects a reader that disconnected unexpectedly, for the connection types
+ * the SDK doesn't reconnect itself. Attempts use the configuration the reader
+ * was originally connected with, and are spaced with exponential backoff and
+ * full jitter, like `RetryPolicy`.
+ */
+class ReaderReconnector {
+
+  interface Listener {
+    void onReconnectStarted(JSObject event, ReaderConnection connection);
+
+    void onReconnectSucceeded(JSObject event, ReaderConnection connection);
+
+    void onReconnectFailed(JSObject event, ReaderConnection connection);
+  }
+
+  private static final Random random = new Random();
+
+  // off by default, which keeps the SDK behavior unchanged
+  boolean enabled = false;
+  int maxAttempts = 5;
+  long initialDelay = 1000;
+  long maxDelay = 30 * 1000;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Listener listener;
+
+  private ReaderConnection connection = null;
+  private long startedAt = 0;
+  private int attempt = 0;
+  private JSArray latencies = new JSArray();
+  private boolean canceled = false;
+  // an attempt is scheduled but hasn't started connecting
+  private boolean waiting = false;
+  private final Runnable next = this::attempt;
+
+  ReaderReconnector(Listener listener) {
+    this.listener = listener;
+  }
+
+  synchronized void configure(PluginCall call) {
+    enabled = call.getBoolean("enabled", true);
+    maxAttempts = Math.max(call.getInt("maxAttempts", maxAttempts), 1);
+    initialDelay = Math.max(call.getInt("initialDelay", (int) initialDelay), 0);
+    maxDelay = Math.max(call.getInt("maxDelay", (int) maxDelay), 0);
+  }
+
+  /**
+   * Whether the engine reconnects readers connected this way. Bluetooth
+   * readers are left to the SDK's `autoReconnectOnUnexpectedDisconnect`.
+   */
+  synchronized boolean handles(ReaderConnection connection) {
+    return (
+      enabled &&
+      connection != null &&
+      !ReaderConnection.BLUETOOTH.equals(connection.type)
+    );
+  }
+
+  synchronized boolean isRunning() {
+    return connection != null;
+  }
+
+  void start(ReaderConnection lost) {
+    JSObject event;
+
+    synchronized (this) {
+      if (connection != null) {
+        return;
+      }
+
+      connection = lost;
+      startedAt = SystemClock.elapsedRealtime();
+      attempt = 0;
+      latencies = new JSArray();
+      canceled = false;
+      waiting = true;
+      event = serializeProgress();
+    }
+
+    listener.onReconnectStarted(event, lost);
+    handler.post(next);
+  }
+
+  /**
+   * Stops scheduling attempts. An attempt already connecting still finishes,
+   * and its outcome is reported.
+   */
+  void cancel() {
+    JSObject event = null;
+    ReaderConnection lost;
+
+    synchronized (this) {
+      if (connection == null) {
+        return;
+      }
+
+      lost = connection;
+      canceled = true;
+
+      // nothing in flight, so nothing else will report the cancel
+      if (waiting) {
+        handler.removeCallbacks(next);
+        waiting = false;
+        event = finish(null);
+      }
+    }
+
+    if (event != null) {
+      listener.onReconnectFailed(event, lost);
+    }
+  }
+
+  private void attempt() {
+    final ReaderConnection current;
+    final long attemptStartedAt = SystemClock.elapsedRealtime();
+
+    synchronized (this) {
+      if (connection == null || canceled) {
+        return;
+      }
+
+      current = connection;
+      waiting = false;
+      attempt++;
+    }
+
+    // connected by hand in the meantime
+    if (Terminal.getInstance().getConnectedReader() != null) {
+      JSObject event;
+      synchronized (this) {
+        canceled = true;
+        event = finish(null);
+      }
+      listener.onReconnectFailed(event, current);
+      return;
+    }
+
+    current
+      .connect()
+      .whenComplete(
+        (reader, e) -> {
+          JSObject event;
+          boolean retry = false;
+
+          synchronized (this) {
+            latencies.put(SystemClock.elapsedRealtime() - attemptStartedAt);
+
+            if (e == null) {
+              event = finish(null);
+            } else if (!canceled && attempt < maxAttempts) {
+              event = null;
+              retry = true;
+              waiting = true;
+              handler.postDelayed(next, delay(attempt));
+            } else {
+              event = finish(e.getErrorMessage());
+            }
+          }
+
+          if (retry) {
+            return;
+          }
+
+          if (e == null) {
+            listener.onReconnectSucceeded(event, current.withReader(reader));
+          } else {
+            listener.onReconnectFailed(event, current);
+          }
+        }
+      );
+  }
+
+  // called with the lock held
+  private JSObject finish(String error) {
+    JSObject event = serializeProgress();
+    event.put("duration", SystemClock.elapsedRealtime() - startedAt);
+    event.put("canceled", canceled);
+    if (error != null) {
+      event.put("error", error);
+    }
+
+    connection = null;
+    return event;
+  }
+
+  // called with the lock held
+  private JSObject serializeProgress() {
+    JSObject event = new JSObject();
+    event.put("serialNumber", connection.getSerialNumber());
+    event.put("type", connection.type);
+    event.put("attempts", attempt);
+    event.put("maxAttempts", maxAttempts);
+    event.put("latencies", latencies);
+    return event;
+  }
+
+  private long delay(int attempt) {
+    long ceiling = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 20));
+    return (long) (random.nextDouble() * ceiling);
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("enabled", enabled);
+    ret.put("maxAttempts", maxAttempts);
+    ret.put("initialDelay", initialDelay);
+    ret.put("maxDelay", maxDelay);
+    ret.put("reconnecting", connection != null);
+    return ret;
+  }
+}
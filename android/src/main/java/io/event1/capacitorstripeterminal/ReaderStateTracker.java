@@ -0,0 +1,113 @@
+package io.event1.capacitorstripeterminal;
+
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.Reader;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the last serialized state of the connected reader so changes can be
+ * sent to JS as patches containing only the fields that changed, instead of
+ * the whole reader.
+ */
+class ReaderStateTracker {
+
+  private JSObject state = null;
+  // fields that only come from partial updates and are never in the reader
+  private final Set<String> extraFields = new HashSet<>();
+
+  /**
+   * Takes the reader as the new baseline, e.g. right after connecting, when
+   * JS has just received the full reader.
+   */
+  synchronized void reset(Reader reader) {
+    Object serialized = TerminalUtils.serializeReader(reader);
+    state = serialized instanceof JSObject ? (JSObject) serialized : null;
+    extraFields.clear();
+  }
+
+  synchronized void clear() {
+    state = null;
+    extraFields.clear();
+  }
+
+  /**
+   * Returns the fields of the reader that changed since the last update, or
+   * null if nothing changed or no reader is being tracked.
+   */
+  synchronized JSObject update(Reader reader) {
+    Object serialized = TerminalUtils.serializeReader(reader);
+
+    if (state == null || !(serialized instanceof JSObject)) {
+      return null;
+    }
+
+    JSObject next = (JSObject) serialized;
+    JSObject changes = new JSObject();
+
+    // the serializer leaves out null fields, so a missing field was cleared
+    Iterator<String> keys = state.keys();
+    while (keys.hasNext()) {
+      String key = keys.next();
+
+      if (
+        !next.has(key) && !extraFields.contains(key) && !state.isNull(key)
+      ) {
+        changes.put(key, JSObject.NULL);
+      }
+    }
+
+    return merge(next, changes);
+  }
+
+  /**
+   * Like `update(Reader)`, for fields reported outside the reader object such
+   * as the battery callback.
+   */
+  synchronized JSObject update(JSObject fields) {
+    if (state == null) {
+      return null;
+    }
+
+    Iterator<String> keys = fields.keys();
+    while (keys.hasNext()) {
+      String key = keys.next();
+
+      if (!state.has(key)) {
+        extraFields.add(key);
+      }
+    }
+
+    return merge(fields, new JSObject());
+  }
+
+  private JSObject merge(JSObject next, JSObject changes) {
+    Iterator<String> cleared = changes.keys();
+    while (cleared.hasNext()) {
+      state.put(cleared.next(), JSObject.NULL);
+    }
+
+    Iterator<String> keys = next.keys();
+
+    while (keys.hasNext()) {
+      String key = keys.next();
+      Object value = next.opt(key);
+
+      if (!Objects.equals(state.opt(key), value)) {
+        changes.put(key, value);
+        state.put(key, value);
+      }
+    }
+
+    if (changes.length() == 0) {
+      return null;
+    }
+
+    JSObject ret = new JSObject();
+    ret.put("serialNumber", state.getString("serialNumber"));
+    ret.put("changes", changes);
+    return ret;
+  }
+}
@@ -0,0 +1,342 @@
+package io.event1.capacitorstripeterminal;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.ConnectionStatus;
+import com.stripe.stripeterminal.external.models.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Per-reader connection statistics: how long each reader was connected and how
+ * long it was down after disconnecting unexpectedly, how often that happened,
+ * and how long reconnects took. Time spent disconnected on purpose doesn't
+ * count either way. Totals are persisted after every change, the segment in
+ * progress is only kept in memory.
+ */
+class ReaderUptimeStats implements TerminalEventListener {
+
+  private static final String PREFS_NAME = "StripeTerminalReaderStats";
+  private static final String KEY_PREFIX = "reader:";
+
+  // upper bounds of the reconnect latency buckets in milliseconds, the last
+  // bucket takes everything slower
+  private static final long[] BUCKETS = {
+    1000,
+    2000,
+    5000,
+    10000,
+    30000,
+    60000
+  };
+
+  private static class Record {
+
+    final String serialNumber;
+    long since = System.currentTimeMillis();
+    long connectedTime = 0;
+    long downTime = 0;
+    int connects = 0;
+    int disconnects = 0;
+    int reconnects = 0;
+    int reconnectsSucceeded = 0;
+    int reconnectsFailed = 0;
+    long latencyTotal = 0;
+    long latencyMin = -1;
+    long latencyMax = -1;
+    final int[] histogram = new int[BUCKETS.length + 1];
+
+    // the segment in progress, in elapsedRealtime, 0 when there is none
+    long upSince = 0;
+    long downSince = 0;
+    long reconnectSince = 0;
+
+    Record(String serialNumber) {
+      this.serialNumber = serialNumber;
+    }
+
+    void addLatency(long latency) {
+      reconnectsSucceeded++;
+      latencyTotal += latency;
+      latencyMin = latencyMin < 0 ? latency : Math.min(latencyMin, latency);
+      latencyMax = Math.max(latencyMax, latency);
+
+      int bucket = 0;
+      while (bucket < BUCKETS.length && latency > BUCKETS[bucket]) {
+        bucket++;
+      }
+      histogram[bucket]++;
+    }
+
+    JSONObject toJSON() throws JSONException {
+      JSONObject json = new JSONObject();
+      json.put("since", since);
+      json.put("connectedTime", connectedTime);
+      json.put("downTime", downTime);
+      json.put("connects", connects);
+      json.put("disconnects", disconnects);
+      json.put("reconnects", reconnects);
+      json.put("reconnectsSucceeded", reconnectsSucceeded);
+      json.put("reconnectsFailed", reconnectsFailed);
+      json.put("latencyTotal", latencyTotal);
+      json.put("latencyMin", latencyMin);
+      json.put("latencyMax", latencyMax);
+
+      JSONArray buckets = new JSONArray();
+      for (int count : histogram) {
+        buckets.put(count);
+      }
+      json.put("histogram", buckets);
+      return json;
+    }
+
+    static Record fromJSON(String serialNumber, JSONObject json) {
+      Record record = new Record(serialNumber);
+      record.since = json.optLong("since", record.since);
+      record.connectedTime = json.optLong("connectedTime");
+      record.downTime = json.optLong("downTime");
+      record.connects = json.optInt("connects");
+      record.disconnects = json.optInt("disconnects");
+      record.reconnects = json.optInt("reconnects");
+      record.reconnectsSucceeded = json.optInt("reconnectsSucceeded");
+      record.reconnectsFailed = json.optInt("reconnectsFailed");
+      record.latencyTotal = json.optLong("latencyTotal");
+      record.latencyMin = json.optLong("latencyMin", -1);
+      record.latencyMax = json.optLong("latencyMax", -1);
+
+      JSONArray buckets = json.optJSONArray("histogram");
+      if (buckets != null) {
+        for (int i = 0; i < record.histogram.length; i++) {
+          record.histogram[i] = buckets.optInt(i);
+        }
+      }
+      return record;
+    }
+  }
+
+  private final SharedPreferences prefs;
+  private final Map<String, Record> records = new HashMap<>();
+
+  ReaderUptimeStats(Context context) {
+    prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+    for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+      if (!entry.getKey().startsWith(KEY_PREFIX)) {
+        continue;
+      }
+
+      String serialNumber = entry.getKey().substring(KEY_PREFIX.length());
+      try {
+        JSONObject json = new JSONObject(String.valueOf(entry.getValue()));
+        records.put(serialNumber, Record.fromJSON(serialNumber, json));
+      } catch (JSONException e) {
+        // drop anything we can't read back
+        prefs.edit().remove(entry.getKey()).apply();
+      }
+    }
+  }
+
+  private Record record(String serialNumber) {
+    Record record = records.get(serialNumber);
+
+    if (record == null) {
+      record = new Record(serialNumber);
+      records.put(serialNumber, record);
+    }
+
+    return record;
+  }
+
+  private void save(Record record) {
+    try {
+      String json = record.toJSON().toString();
+      prefs.edit().putString(KEY_PREFIX + record.serialNumber, json).apply();
+    } catch (JSONException e) {
+      // only numbers are written, so this can't happen
+    }
+  }
+
+  private void endUp(Record record, long now) {
+    if (record.upSince > 0) {
+      record.connectedTime += now - record.upSince;
+      record.upSince = 0;
+    }
+  }
+
+  private void endDown(Record record, long now) {
+    if (record.downSince > 0) {
+      record.downTime += now - record.downSince;
+      record.downSince = 0;
+    }
+  }
+
+  private void startDown(Record record, long now) {
+    endUp(record, now);
+
+    if (record.downSince == 0) {
+      record.downSince = now;
+      record.disconnects++;
+    }
+  }
+
+  private void up(String serialNumber) {
+    long now = SystemClock.elapsedRealtime();
+
+    // another reader taking over ends the outage of the one it replaced
+    for (Record other : records.values()) {
+      if (!other.serialNumber.equals(serialNumber) && other.downSince > 0) {
+        endDown(other, now);
+        other.reconnectSince = 0;
+        save(other);
+      }
+    }
+
+    Record record = record(serialNumber);
+    endDown(record, now);
+    if (record.upSince == 0) {
+      record.upSince = now;
+      record.connects++;
+    }
+    save(record);
+  }
+
+  @Override
+  public synchronized void onReaderConnected(@NonNull Reader reader) {
+    up(reader.getSerialNumber());
+  }
+
+  @Override
+  public synchronized void onConnectionStatusChange(
+    @NonNull ConnectionStatus status
+  ) {
+    if (status != ConnectionStatus.NOT_CONNECTED) {
+      return;
+    }
+
+    long now = SystemClock.elapsedRealtime();
+    for (Record record : records.values()) {
+      if (record.upSince > 0) {
+        endUp(record, now);
+        save(record);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void onUnexpectedReaderDisconnect(
+    @NonNull Reader reader
+  ) {
+    Record record = record(reader.getSerialNumber());
+    startDown(record, SystemClock.elapsedRealtime());
+    save(record);
+  }
+
+  @Override
+  public synchronized void onReaderReconnectStarted(@NonNull Reader reader) {
+    long now = SystemClock.elapsedRealtime();
+    Record record = record(reader.getSerialNumber());
+
+    // Bluetooth readers start reconnecting without reporting a disconnect
+    startDown(record, now);
+    record.reconnects++;
+    record.reconnectSince = now;
+    save(record);
+  }
+
+  @Override
+  public synchronized void onReaderReconnectSucceeded(@NonNull Reader reader) {
+    Record record = record(reader.getSerialNumber());
+
+    if (record.reconnectSince > 0) {
+      record.addLatency(SystemClock.elapsedRealtime() - record.reconnectSince);
+      record.reconnectSince = 0;
+    }
+
+    up(reader.getSerialNumber());
+  }
+
+  @Override
+  public synchronized void onReaderReconnectFailed(@NonNull Reader reader) {
+    Record record = record(reader.getSerialNumber());
+
+    // the reader stays down until something connects again
+    record.reconnectsFailed++;
+    record.reconnectSince = 0;
+    save(record);
+  }
+
+  synchronized void clear() {
+    records.clear();
+    prefs.edit().clear().apply();
+  }
+
+  /**
+   * Returns the statistics of one reader, or of every reader seen if
+   * `serialNumber` is null. Segments in progress are included.
+   */
+  synchronized JSArray serialize(String serialNumber) {
+    long now = SystemClock.elapsedRealtime();
+    JSArray ret = new JSArray();
+
+    for (Record record : records.values()) {
+      if (serialNumber == null || serialNumber.equals(record.serialNumber)) {
+        ret.put(serializeRecord(record, now));
+      }
+    }
+
+    return ret;
+  }
+
+  private static JSObject serializeRecord(Record record, long now) {
+    long connectedTime =
+      record.connectedTime + (record.upSince > 0 ? now - record.upSince : 0);
+    long downTime =
+      record.downTime + (record.downSince > 0 ? now - record.downSince : 0);
+    long tracked = connectedTime + downTime;
+
+    JSObject latency = new JSObject();
+    latency.put("min", record.latencyMin);
+    latency.put("max", record.latencyMax);
+    latency.put(
+      "avg",
+      record.reconnectsSucceeded > 0
+        ? record.latencyTotal / record.reconnectsSucceeded
+        : -1
+    );
+
+    JSArray histogram = new JSArray();
+    for (int i = 0; i < record.histogram.length; i++) {
+      JSObject bucket = new JSObject();
+      bucket.put("le", i < BUCKETS.length ? BUCKETS[i] : -1);
+      bucket.put("count", record.histogram[i]);
+      histogram.put(bucket);
+    }
+
+    JSObject reconnects = new JSObject();
+    reconnects.put("started", record.reconnects);
+    reconnects.put("succeeded", record.reconnectsSucceeded);
+    reconnects.put("failed", record.reconnectsFailed);
+    reconnects.put("latency", latency);
+    reconnects.put("histogram", histogram);
+
+    JSObject ret = new JSObject();
+    ret.put("serialNumber", record.serialNumber);
+    ret.put("since", record.since);
+    ret.put("connected", record.upSince > 0);
+    ret.put("down", record.downSince > 0);
+    ret.put("uptime", tracked > 0 ? connectedTime * 100.0 / tracked : -1);
+    ret.put("connectedTime", connectedTime);
+    ret.put("downTime", downTime);
+    ret.put("connects", record.connects);
+    ret.put("disconnects", record.disconnects);
+    ret.put("reconnects", reconnects);
+    return ret;
+  }
+}
@@ -0,0 +1,239 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.callable.Callback;
+import com.stripe.stripeterminal.external.models.RefundParameters;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Runs refunds back to back on the connected reader. Each refund is collected
+ * and processed before the next one starts, without a round trip to JS in
+ * between, and reports how long collecting and processing took. A failed
+ * refund doesn't stop the queue, canceling it does.
+ */
+class RefundQueue {
+
+  interface Listener {
+    void onRefundFinished(JSObject result);
+
+    void onQueueFinished(JSObject summary);
+  }
+
+  static class Request {
+
+    final int index;
+    final String chargeId;
+    final long amount;
+    final String currency;
+
+    Request(int index, String chargeId, long amount, String currency) {
+      this.index = index;
+      this.chargeId = chargeId;
+      this.amount = amount;
+      this.currency = currency;
+    }
+
+    /**
+     * Returns null if the charge, amount or currency is missing.
+     */
+    static Request fromJSObject(int index, JSObject object) {
+      if (object == null) {
+        return null;
+      }
+
+      String chargeId = object.getString("chargeId");
+      long amount = object.optLong("amount", 0);
+      String currency = object.getString("currency");
+
+      if (chargeId == null || amount <= 0 || currency == null) {
+        return null;
+      }
+
+      return new Request(index, chargeId, amount, currency);
+    }
+
+    RefundParameters toParameters() {
+      return new RefundParameters.Builder(chargeId, amount, currency).build();
+    }
+  }
+
+  private final Deque<Request> pending = new ArrayDeque<>();
+  private Listener listener = null;
+  private TerminalFuture<Void> collecting = null;
+  private boolean running = false;
+  private boolean canceled = false;
+
+  private long startedAt = 0;
+  private int succeeded = 0;
+  private int failed = 0;
+
+  synchronized boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Starts working through the requests. Returns false if a queue is already
+   * running.
+   */
+  boolean start(List<Request> requests, Listener listener) {
+    synchronized (this) {
+      if (running) {
+        return false;
+      }
+
+      pending.clear();
+      pending.addAll(requests);
+      this.listener = listener;
+      running = true;
+      canceled = false;
+      startedAt = SystemClock.elapsedRealtime();
+      succeeded = 0;
+      failed = 0;
+    }
+
+    next();
+    return true;
+  }
+
+  /**
+   * Drops the refunds that haven't started and cancels collecting the current
+   * one. A refund that is already being processed still finishes.
+   */
+  void cancel() {
+    TerminalFuture<Void> current;
+
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+
+      canceled = true;
+      pending.clear();
+      current = collecting;
+    }
+
+    if (current != null) {
+      current.cancel(
+        new Callback() {
+          @Override
+          public void onSuccess() {}
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {}
+        }
+      );
+    }
+  }
+
+  private void next() {
+    final Request request;
+
+    synchronized (this) {
+      request = canceled ? null : pending.poll();
+    }
+
+    if (request == null) {
+      finish();
+      return;
+    }
+
+    final long refundStartedAt = SystemClock.elapsedRealtime();
+    final JSObject result = serializeRequest(request);
+    TerminalFuture<Void> collect =
+      TerminalOperations.collectRefundPaymentMethod(request.toParameters());
+
+    synchronized (this) {
+      collecting = collect;
+    }
+
+    collect.whenComplete(
+      (collected, e) -> {
+        synchronized (this) {
+          collecting = null;
+        }
+
+        final long collectTime =
+          SystemClock.elapsedRealtime() - refundStartedAt;
+        result.put("collectTime", collectTime);
+
+        if (e != null) {
+          onRefundFinished(result, refundStartedAt, e);
+          next();
+          return;
+        }
+
+        TerminalOperations
+          .processRefund()
+          .whenComplete(
+            (refund, processException) -> {
+              result.put(
+                "processTime",
+                SystemClock.elapsedRealtime() - refundStartedAt - collectTime
+              );
+              if (refund != null) {
+                result.put("refund", TerminalUtils.serializeRefund(refund));
+              }
+
+              onRefundFinished(result, refundStartedAt, processException);
+              next();
+            }
+          );
+      }
+    );
+  }
+
+  private void onRefundFinished(
+    JSObject result,
+    long refundStartedAt,
+    TerminalException e
+  ) {
+    result.put("totalTime", SystemClock.elapsedRealtime() - refundStartedAt);
+
+    synchronized (this) {
+      if (e == null) {
+        succeeded++;
+      } else {
+        failed++;
+      }
+    }
+
+    if (e != null) {
+      result.put("error", e.getErrorMessage());
+      result.put("code", e.getErrorCode().toString());
+    }
+
+    listener.onRefundFinished(result);
+  }
+
+  private void finish() {
+    JSObject summary = new JSObject();
+    Listener done;
+
+    synchronized (this) {
+      summary.put("succeeded", succeeded);
+      summary.put("failed", failed);
+      summary.put("canceled", canceled);
+      summary.put("duration", SystemClock.elapsedRealtime() - startedAt);
+
+      done = listener;
+      running = false;
+      listener = null;
+    }
+
+    done.onQueueFinished(summary);
+  }
+
+  private static JSObject serializeRequest(Request request) {
+    JSObject ret = new JSObject();
+    ret.put("index", request.index);
+    ret.put("chargeId", request.chargeId);
+    ret.put("amount", request.amount);
+    ret.put("currency", request.currency);
+    return ret;
+  }
+}
@@ -0,0 +1,83 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs callback-style SDK operations under the retry policy and circuit breaker
+ * configured for their plugin method.
+ */
+class RetryExecutor {
+
+  interface Operation {
+    void run(int attempt);
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<String, RetryPolicy> policies = new HashMap<>();
+
+  synchronized RetryPolicy policy(String method) {
+    RetryPolicy policy = policies.get(method);
+
+    if (policy == null) {
+      policy = new RetryPolicy();
+      policies.put(method, policy);
+    }
+
+    return policy;
+  }
+
+  /**
+   * Starts the first attempt. Returns false without running the operation if
+   * the circuit for the method is open.
+   */
+  boolean run(String method, Operation operation) {
+    if (!policy(method).breaker.allowRequest()) {
+      return false;
+    }
+
+    operation.run(1);
+    return true;
+  }
+
+  void onSuccess(String method) {
+    policy(method).breaker.onSuccess();
+  }
+
+  /**
+   * Schedules another attempt if the failure is transient and attempts are
+   * left. No attempt is scheduled to start at or after `deadline`
+   * (milliseconds since the epoch), by then the watchdog has rejected the
+   * call. Returns false if the caller should report the failure.
+   */
+  boolean retry(
+    String method,
+    TerminalException e,
+    final int attempt,
+    long deadline,
+    final Operation operation
+  ) {
+    RetryPolicy policy = policy(method);
+
+    if (!policy.isRetryable(e)) {
+      return false;
+    }
+
+    policy.breaker.onFailure();
+
+    if (attempt >= policy.maxAttempts || !policy.breaker.allowRequest()) {
+      return false;
+    }
+
+    long delay = policy.delay(attempt);
+    if (System.currentTimeMillis() + delay >= deadline) {
+      return false;
+    }
+
+    handler.postDelayed(() -> operation.run(attempt + 1), delay);
+    return true;
+  }
+}
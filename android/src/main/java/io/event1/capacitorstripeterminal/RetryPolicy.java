@@ -0,0 +1,76 @@
+package io.event1.capacitorstripeterminal;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Retry settings for one network-bound plugin method. Delays grow exponentially
+ * from `initialDelay` up to `maxDelay`, with full jitter so that many devices
+ * don't retry against the backend at the same moment.
+ */
+class RetryPolicy {
+
+  private static final Random random = new Random();
+
+  // 1 means no retries, which keeps the SDK behavior unchanged by default
+  int maxAttempts = 1;
+  long initialDelay = 500;
+  long maxDelay = 10 * 1000;
+  final Set<String> retryableErrorCodes = new HashSet<>();
+  final CircuitBreaker breaker = new CircuitBreaker();
+
+  RetryPolicy() {
+    // names of TerminalException.TerminalErrorCode values
+    retryableErrorCodes.add("STRIPE_API_CONNECTION_ERROR");
+    retryableErrorCodes.add("REQUEST_TIMED_OUT");
+  }
+
+  void configure(PluginCall call) throws JSONException {
+    maxAttempts = Math.max(call.getInt("maxAttempts", maxAttempts), 1);
+    initialDelay = call.getInt("initialDelay", (int) initialDelay);
+    maxDelay = call.getInt("maxDelay", (int) maxDelay);
+
+    JSONArray codes = call.getData().optJSONArray("retryableErrorCodes");
+    if (codes != null) {
+      retryableErrorCodes.clear();
+      for (int i = 0; i < codes.length(); i++) {
+        retryableErrorCodes.add(codes.getString(i));
+      }
+    }
+
+    breaker.failureThreshold =
+      call.getInt("failureThreshold", breaker.failureThreshold);
+    breaker.resetTimeout =
+      call.getInt("resetTimeout", (int) breaker.resetTimeout);
+  }
+
+  boolean isRetryable(TerminalException e) {
+    return retryableErrorCodes.contains(e.getErrorCode().toString());
+  }
+
+  /**
+   * Returns the delay before the attempt following `attempt` (1 based).
+   */
+  long delay(int attempt) {
+    long ceiling = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 20));
+    return (long) (random.nextDouble() * ceiling);
+  }
+
+  JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("maxAttempts", maxAttempts);
+    ret.put("initialDelay", initialDelay);
+    ret.put("maxDelay", maxDelay);
+    ret.put("retryableErrorCodes", new JSONArray(retryableErrorCodes));
+    ret.put("failureThreshold", breaker.failureThreshold);
+    ret.put("resetTimeout", breaker.resetTimeout);
+    ret.put("circuit", breaker.serialize());
+    return ret;
+  }
+}
@@ -0,0 +1,109 @@
+package io.event1.capacitorstripeterminal;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges concurrent plugin calls with the same key into a single SDK operation.
+ * The first caller starts the operation and every call that joins before it
+ * completes receives the same result.
+ */
+class SingleFlight {
+
+  private final Map<String, List<PluginCall>> inFlight = new HashMap<>();
+  private final CallWatchdog watchdog;
+
+  SingleFlight(CallWatchdog watchdog) {
+    this.watchdog = watchdog;
+  }
+
+  /**
+   * Adds the call to the operation for the key. Returns true if the caller is
+   * the first one and has to start the operation.
+   */
+  synchronized boolean join(String key, PluginCall call) {
+    List<PluginCall> calls = inFlight.get(key);
+
+    if (calls != null) {
+      calls.add(call);
+      return false;
+    }
+
+    calls = new ArrayList<>();
+    calls.add(call);
+    inFlight.put(key, calls);
+    return true;
+  }
+
+  /**
+   * Removes a call that was settled elsewhere, so the result of the operation
+   * isn't delivered to it again. The operation keeps running for the others.
+   */
+  synchronized void remove(PluginCall call) {
+    for (List<PluginCall> calls : inFlight.values()) {
+      if (calls.remove(call)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the latest deadline of the calls still waiting on the key, see
+   * `CallWatchdog.deadline`. `Long.MIN_VALUE` if none is waiting anymore.
+   */
+  synchronized long deadline(String key) {
+    List<PluginCall> calls = inFlight.get(key);
+    long deadline = Long.MIN_VALUE;
+
+    if (calls != null) {
+      for (PluginCall call : calls) {
+        deadline = Math.max(deadline, CallWatchdog.deadline(call));
+      }
+    }
+    return deadline;
+  }
+
+  /**
+   * Ends the operation for the key and returns every call waiting on it that
+   * still has to be settled.
+   */
+  synchronized List<PluginCall> complete(String key) {
+    List<PluginCall> calls = inFlight.remove(key);
+    List<PluginCall> unsettled = new ArrayList<>();
+
+    if (calls == null) {
+      return unsettled;
+    }
+
+    for (PluginCall call : calls) {
+      if (watchdog.finish(call)) {
+        unsettled.add(call);
+      }
+    }
+    return unsettled;
+  }
+
+  void resolve(String key, JSObject ret) {
+    for (PluginCall call : complete(key)) {
+      call.resolve(ret);
+    }
+  }
+
+  void reject(String key, Exception e) {
+    for (PluginCall call : complete(key)) {
+      call.reject(e.getMessage(), e);
+    }
+  }
+
+  static String key(String method, Object... args) {
+    StringBuilder builder = new StringBuilder(method);
+    for (Object arg : args) {
+      builder.append('\u0000').append(arg);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,60 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times the phases of `initialize`: permission prompts, enabling the Bluetooth
+ * adapter and `Terminal.initTerminal`. Phases are reported in the order they
+ * finished, along with the total time from the call to the last phase.
+ */
+class StartupTrace {
+
+  private long startedAt = 0;
+  private long finishedAt = 0;
+  private final Map<String, Long> running = new HashMap<>();
+  private JSArray phases = new JSArray();
+
+  synchronized void start() {
+    startedAt = SystemClock.elapsedRealtime();
+    finishedAt = startedAt;
+    running.clear();
+    phases = new JSArray();
+  }
+
+  synchronized void begin(String phase) {
+    running.put(phase, SystemClock.elapsedRealtime());
+  }
+
+  /**
+   * Ends the phase and returns its duration, or -1 if it never began.
+   */
+  synchronized long end(String phase) {
+    Long begunAt = running.remove(phase);
+
+    if (begunAt == null) {
+      return -1;
+    }
+
+    finishedAt = SystemClock.elapsedRealtime();
+    long duration = finishedAt - begunAt;
+
+    JSObject entry = new JSObject();
+    entry.put("phase", phase);
+    entry.put("start", begunAt - startedAt);
+    entry.put("duration", duration);
+    phases.put(entry);
+
+    return duration;
+  }
+
+  synchronized JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("total", finishedAt - startedAt);
+    ret.put("phases", phases);
+    return ret;
+  }
+}
@@ -2,7 +2,11 @@ package io.event1.capacitorstripeterminal;
 
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
+import android.content.Context;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
@@ -22,9 +26,7 @@ import com.stripe.stripeterminal.external.callable.ConnectionTokenCallback;
 import com.stripe.stripeterminal.external.callable.ConnectionTokenProvider;
 import com.stripe.stripeterminal.external.callable.DiscoveryListener;
 import com.stripe.stripeterminal.external.callable.HandoffReaderListener;
-import com.stripe.stripeterminal.external.callable.LocationListCallback;
 import com.stripe.stripeterminal.external.callable.PaymentIntentCallback;
-import com.stripe.stripeterminal.external.callable.ReaderCallback;
 import com.stripe.stripeterminal.external.callable.TerminalListener;
 import com.stripe.stripeterminal.external.callable.UsbReaderListener;
 import com.stripe.stripeterminal.external.models.BatteryStatus;
@@ -55,8 +57,17 @@ import com.stripe.stripeterminal.external.models.SimulatedCardType;
 import com.stripe.stripeterminal.external.models.SimulatorConfiguration;
 import com.stripe.stripeterminal.external.models.TerminalException;
 import com.stripe.stripeterminal.log.LogLevel;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -88,7 +99,10 @@ public class StripeTerminal
     BluetoothReaderReconnectionListener {
 
   Cancelable pendingDiscoverReaders = null;
-  Cancelable pendingCollectPaymentMethod = null;
+  TerminalFuture<PaymentIntent> pendingCollectPaymentMethod = null;
+  TerminalFuture<Void> pendingCollectRefundPaymentMethod = null;
+  ReaderConnection lastConnection = null;
+  final RefundQueue refundQueue = new RefundQueue();
   ConnectionTokenCallback pendingConnectionTokenCallback = null;
   String lastCurrency = null;
 
@@ -96,9 +110,178 @@ public class StripeTerminal
   PaymentIntent currentPaymentIntent = null;
   ReaderEvent lastReaderEvent = ReaderEvent.CARD_REMOVED;
   List<? extends Reader> discoveredReadersList = null;
+  List<Reader> filteredReadersList = new ArrayList<>();
+  ReaderFilter discoveryFilter = new ReaderFilter();
+  int discoveryPageSize = 0;
+
+  ReaderCache readerCache;
+  ReaderUptimeStats uptimeStats;
+  TransactionLedger ledger;
+  boolean cacheDiscoveredReaders = false;
+  String discoveryCacheLocation = null;
+  Set<String> cachedReaderSerials = new HashSet<>();
+  // the cached readers shown until the live discovery reports its own
+  JSArray cachedReadersList = null;
+
+  final DiagnosticLog log = new DiagnosticLog();
+
+  final StartupTrace startupTrace = new StartupTrace();
+  boolean deferBluetooth = false;
+  // false when initialize was told the app never discovers Bluetooth readers
+  boolean bluetoothDeclared = true;
+  boolean bluetoothReady = false;
+
+  MetricsRecorder metrics;
+
+  final EventBatcher eventBatcher = new EventBatcher(
+    batch -> super.notifyListeners(EventBatcher.EVENT_NAME, batch)
+  );
+
+  final TraceRecorder trace = new TraceRecorder();
+
+  final CallWatchdog watchdog = new CallWatchdog(
+    new CallWatchdog.Listener() {
+      @Override
+      public void onStarted(PluginCall call) {
+        trace.record(
+          TraceRecorder.CALL,
+          call.getMethodName(),
+          null,
+          call.getData()
+        );
+      }
+
+      @Override
+      public void onFinished(String method, long duration) {
+        recordTiming("method." + method, duration);
+      }
+
+      @Override
+      public void onExpired(PluginCall call) {
+        singleFlight.remove(call);
+      }
+    }
+  );
+  final SingleFlight singleFlight = new SingleFlight(watchdog);
+  final RetryExecutor retries = new RetryExecutor();
+
+  final UpdateScheduler updateScheduler = new UpdateScheduler(
+    this::installScheduledUpdate
+  );
   Cancelable pendingInstallUpdate = null;
   Cancelable pendingReaderAutoReconnect = null;
 
+  final Handler discoveryHandler = new Handler(Looper.getMainLooper());
+  DiscoverySession discoverySession = null;
+
+  final List<TerminalEventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+  final ReaderStateTracker readerState = new ReaderStateTracker();
+
+  final LocalMobileWarmUp localMobileWarmUp = new LocalMobileWarmUp(
+    this::onLocalMobileWarmUpFinished
+  );
+
+  boolean readerDisplayActive = false;
+
+  final ReaderFailover readerFailover = new ReaderFailover();
+
+  final ReaderReconnector reconnector = new ReaderReconnector(
+    new ReaderReconnector.Listener() {
+      @Override
+      public void onReconnectStarted(
+        JSObject event,
+        ReaderConnection connection
+      ) {
+        for (TerminalEventListener listener : eventListeners) {
+          listener.onReaderReconnectStarted(connection.reader);
+        }
+
+        notifyListeners("didStartReaderReconnect", event);
+      }
+
+      @Override
+      public void onReconnectSucceeded(
+        JSObject event,
+        ReaderConnection connection
+      ) {
+        recordTiming("autoReconnect", event.optLong("duration"));
+
+        for (TerminalEventListener listener : eventListeners) {
+          listener.onReaderReconnectSucceeded(connection.reader);
+        }
+
+        onReaderReconnected(connection);
+        notifyListeners("didSucceedReaderReconnect", event);
+      }
+
+      @Override
+      public void onReconnectFailed(
+        JSObject event,
+        ReaderConnection connection
+      ) {
+        log.debug("reconnect to " + connection.getSerialNumber() + " failed");
+
+        for (TerminalEventListener listener : eventListeners) {
+          listener.onReaderReconnectFailed(connection.reader);
+        }
+
+        notifyListeners("didFailReaderReconnect", event);
+      }
+    }
+  );
+
+  final ReaderHealthMonitor readerHealth = new ReaderHealthMonitor(
+    new ReaderHealthMonitor.Host() {
+      @Override
+      public boolean isIdle() {
+        return isReaderIdle();
+      }
+
+      @Override
+      public ReaderConnection getConnection() {
+        return lastConnection;
+      }
+
+      @Override
+      public TerminalFuture<Reader> reconnect(ReaderConnection connection) {
+        return reconnectReader(connection);
+      }
+
+      @Override
+      public void onHealthChanged(JSObject health) {
+        notifyListeners("didReportReaderHealth", health);
+      }
+    }
+  );
+
+  @Override
+  public void load() {
+    readerCache = new ReaderCache(getContext());
+    ledger = new TransactionLedger(getContext());
+    metrics = new MetricsRecorder(getContext().getFilesDir());
+    uptimeStats = new ReaderUptimeStats(getContext());
+    eventListeners.add(uptimeStats);
+
+    // pick up SDK callbacks for a Terminal an earlier instance set up
+    TerminalHost.INSTANCE.attach(this);
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    TerminalHost.INSTANCE.detach(this);
+
+    // a token request this instance didn't answer waits for the next one
+    if (pendingConnectionTokenCallback != null) {
+      TerminalHost.INSTANCE.fetchConnectionToken(
+        pendingConnectionTokenCallback
+      );
+      pendingConnectionTokenCallback = null;
+    }
+
+    super.handleOnDestroy();
+  }
+
   @PluginMethod
   public void getPermissions(PluginCall call) {
     if (getPermissionState("location") != PermissionState.GRANTED) {
@@ -112,24 +295,55 @@ public class StripeTerminal
 
   @PluginMethod
   public void initialize(PluginCall call) {
+    startupTrace.start();
+
+    // with the discovery methods declared, Bluetooth is only set up once a
+    // declared Bluetooth discovery starts, and never when none is declared
+    JSArray discoveryMethods = call.getArray("discoveryMethods");
+    deferBluetooth = discoveryMethods != null;
+    bluetoothDeclared =
+      discoveryMethods == null || declaresBluetooth(discoveryMethods);
+
+    requestInitializePermissions(call);
+  }
+
+  private static boolean declaresBluetooth(JSArray discoveryMethods) {
+    for (int i = 0; i < discoveryMethods.length(); i++) {
+      if (
+        TerminalUtils.translateDiscoveryMethod(discoveryMethods.optInt(i)) ==
+        DiscoveryMethod.BLUETOOTH_SCAN
+      ) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void requestInitializePermissions(PluginCall call) {
     if (getPermissionState("location") != PermissionState.GRANTED) {
+      startupTrace.begin("permission.location");
       requestPermissionForAlias("location", call, "locationPermsCallback");
-    } else if (
-      getPermissionState("bluetooth") != PermissionState.GRANTED &&
-      Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
-    ) {
+    } else if (!deferBluetooth && needsBluetoothPermission()) {
+      startupTrace.begin("permission.bluetooth");
       requestPermissionForAlias("bluetooth", call, "bluetoothPermsCallback");
     } else {
       _initialize(call);
     }
   }
 
+  private boolean needsBluetoothPermission() {
+    return (
+      getPermissionState("bluetooth") != PermissionState.GRANTED &&
+      Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+    );
+  }
+
   @PermissionCallback
   private void bluetoothPermsCallback(PluginCall call) {
-    if (
-      getPermissionState("bluetooth") == PermissionState.GRANTED ||
-      Build.VERSION.SDK_INT < Build.VERSION_CODES.S
-    ) {
+    startupTrace.end("permission.bluetooth");
+
+    if (!needsBluetoothPermission()) {
       _initialize(call);
     } else {
       call.reject("Bluetooth permissions are required.");
@@ -138,27 +352,61 @@ public class StripeTerminal
 
   @PermissionCallback
   private void locationPermsCallback(PluginCall call) {
+    startupTrace.end("permission.location");
+
     if (getPermissionState("location") == PermissionState.GRANTED) {
-      _initialize(call);
+      requestInitializePermissions(call);
     } else {
       call.reject("Location permission is required.");
     }
   }
 
-  private void _initialize(PluginCall call) {
-    // turn on bluetooth
+  private void enableBluetooth() {
+    startupTrace.begin("bluetooth.enable");
+
     BluetoothAdapter bluetooth = BluetoothAdapter.getDefaultAdapter();
-    if (!bluetooth.isEnabled()) {
+    if (bluetooth != null && !bluetooth.isEnabled()) {
       bluetooth.enable();
     }
+    bluetoothReady = bluetooth != null;
+
+    long duration = startupTrace.end("bluetooth.enable");
+    recordTiming("startup.bluetooth.enable", duration);
+  }
+
+  private void finishStartupTrace() {
+    JSObject startup = startupTrace.serialize();
+    log.debug("initialize finished: " + startup);
+    recordTiming("startup", startup.optLong("total"));
+  }
+
+  @PluginMethod
+  public void getStartupTrace(PluginCall call) {
+    call.resolve(startupTrace.serialize());
+  }
+
+  private void _initialize(PluginCall call) {
+    if (!deferBluetooth) {
+      enableBluetooth();
+    }
 
     // Check if stripe is initialized
     boolean isInitialized = Terminal.isInitialized();
     if (isInitialized) {
+      // reattaching after the Activity was recreated, the reader may still be
+      // connected
+      Reader connectedReader = Terminal.getInstance().getConnectedReader();
+      if (connectedReader != null) {
+        readerState.reset(connectedReader);
+      }
+
       JSObject ret = new JSObject();
       ret.put("isInitialized", true);
 
+      finishStartupTrace();
       call.resolve(ret);
+      startForegroundService(call);
+      startLocalMobileWarmUp(call);
       return;
     }
 
@@ -166,14 +414,23 @@ public class StripeTerminal
     cancelDiscoverReaders();
     cancelInstallUpdate();
 
-    LogLevel logLevel = LogLevel.VERBOSE;
-    ConnectionTokenProvider tokenProvider = this;
-    TerminalListener terminalListener = this;
+    LogLevel logLevel = TerminalUtils.translateLogLevel(
+      call.getString("logLevel", "verbose")
+    );
+    log.setCapacity(call.getInt("logCapacity", DiagnosticLog.DEFAULT_CAPACITY));
+    ConnectionTokenProvider tokenProvider = TerminalHost.INSTANCE;
+    TerminalListener terminalListener = TerminalHost.INSTANCE;
+
+    // a Terminal hosted by the service must not hold on to the Activity
+    Context context = call.getObject("foregroundService") != null
+      ? getContext().getApplicationContext()
+      : this.bridge.getActivity();
 
     String err = "";
+    startupTrace.begin("initTerminal");
     try {
       Terminal.initTerminal(
-        this.bridge.getActivity(),
+        context,
         logLevel,
         tokenProvider,
         terminalListener
@@ -181,14 +438,16 @@ public class StripeTerminal
       lastReaderEvent = ReaderEvent.CARD_REMOVED;
       isInitialized = true;
     } catch (TerminalException e) {
-      //      e.printStackTrace();
+      log.error("initTerminal failed", e);
       err = e.getErrorMessage();
       isInitialized = false;
     } catch (IllegalStateException ex) {
-      ex.printStackTrace();
+      log.error("initTerminal failed", ex);
       err = ex.getMessage();
       isInitialized = true;
     }
+    recordTiming("startup.initTerminal", startupTrace.end("initTerminal"));
+    finishStartupTrace();
 
     JSObject ret = new JSObject();
     ret.put("isInitialized", isInitialized);
@@ -199,6 +458,383 @@ public class StripeTerminal
       return;
     }
 
+    call.resolve(ret);
+    startForegroundService(call);
+    startLocalMobileWarmUp(call);
+  }
+
+  private void startForegroundService(PluginCall call) {
+    JSObject options = call.getObject("foregroundService");
+
+    if (options == null || TerminalService.isRunning()) {
+      return;
+    }
+
+    log.debug("starting the foreground service");
+    TerminalService.start(
+      getContext(),
+      options.getString("title"),
+      options.getString("text")
+    );
+  }
+
+  @PluginMethod
+  public void stopForegroundService(PluginCall call) {
+    TerminalService.stop(getContext());
+    call.resolve();
+  }
+
+  private void startLocalMobileWarmUp(PluginCall call) {
+    JSObject options = call.getObject("localMobileWarmUp");
+
+    if (options == null) {
+      localMobileWarmUp.disable();
+      return;
+    }
+
+    String locationId = options.getString("locationId");
+
+    if (locationId == null) {
+      log.debug("local mobile warm-up skipped, no location ID was provided");
+      return;
+    }
+
+    log.debug("warming up the local mobile reader");
+    localMobileWarmUp.start(locationId, options.optBoolean("simulated", false));
+  }
+
+  private void onLocalMobileWarmUpFinished(Reader reader, JSObject result) {
+    log.debug("local mobile warm-up finished: " + result);
+
+    if (reader != null) {
+      readerState.reset(reader);
+
+      for (TerminalEventListener listener : eventListeners) {
+        listener.onReaderConnected(reader);
+      }
+    }
+
+    notifyListeners("didFinishLocalMobileWarmUp", result);
+  }
+
+  @PluginMethod
+  public void getLocalMobileWarmUp(PluginCall call) {
+    call.resolve(localMobileWarmUp.serialize());
+  }
+
+  private void recordTiming(String name, long duration) {
+    if (metrics != null) {
+      metrics.recordTiming(name, duration);
+    }
+  }
+
+  /**
+   * Whether an event is worth building at all. Serializing readers and intents
+   * for an event nobody listens to is wasted work.
+   */
+  boolean isObserved(String eventName) {
+    return hasListeners(eventName) || trace.isRecording();
+  }
+
+  @Override
+  protected void notifyListeners(String eventName, JSObject data) {
+    trace.record(TraceRecorder.EVENT, eventName, null, data);
+
+    if (!hasListeners(eventName)) {
+      return;
+    }
+
+    if (metrics != null) {
+      metrics.recordEvent(eventName);
+    }
+
+    if (!eventBatcher.offer(eventName, data)) {
+      super.notifyListeners(eventName, data);
+    }
+  }
+
+  @PluginMethod
+  public void setEventBatching(PluginCall call) {
+    Set<String> eventNames = new HashSet<>();
+
+    try {
+      JSArray events = call.getArray("events", new JSArray());
+      for (int i = 0; i < events.length(); i++) {
+        eventNames.add(events.getString(i));
+      }
+    } catch (JSONException e) {
+      call.reject(e.getLocalizedMessage(), null, e);
+      return;
+    }
+
+    eventBatcher.configure(call.getInt("window", 0), eventNames);
+    call.resolve(eventBatcher.serialize());
+  }
+
+  private void traceResult(String operation, TerminalException e) {
+    JSObject data = new JSObject();
+    data.put("ok", e == null);
+    if (e != null) {
+      data.put("error", e.getErrorCode().toString());
+    }
+
+    trace.record(TraceRecorder.RESULT, operation, null, data);
+  }
+
+  @PluginMethod
+  public void startTraceRecording(PluginCall call) {
+    trace.start(call.getInt("maxEntries", TraceRecorder.DEFAULT_MAX_ENTRIES));
+    call.resolve();
+  }
+
+  @PluginMethod
+  public void stopTraceRecording(PluginCall call) {
+    try {
+      File directory = new File(
+        getContext().getCacheDir(),
+        TraceRecorder.DIRECTORY
+      );
+      call.resolve(trace.stop(directory));
+    } catch (IOException e) {
+      log.error("stopTraceRecording failed", e);
+      call.reject(e.getLocalizedMessage(), null, e);
+    }
+  }
+
+  @PluginMethod
+  public void replayTrace(final PluginCall call) {
+    String path = call.getString("path");
+
+    if (path == null) {
+      call.reject("Must provide a trace path");
+      return;
+    }
+
+    JSONArray entries;
+    try {
+      JSONObject recorded = new JSONObject(readFile(new File(path)));
+      entries = recorded.getJSONArray("entries");
+    } catch (IOException | JSONException e) {
+      log.error("replayTrace could not read " + path, e);
+      call.reject(e.getLocalizedMessage(), null, e);
+      return;
+    }
+
+    TraceReplayer replayer = new TraceReplayer(createReplayTarget());
+    replayer.replay(entries, call.getDouble("speed", 1.0), call::resolve);
+  }
+
+  /**
+   * Where the SDK callback handlers send their events. Live callbacks notify
+   * JS, a replay runs the same handlers into a sink that drops the events.
+   */
+  private interface EventSink {
+    boolean isObserved(String eventName);
+
+    void emit(String eventName, JSObject data);
+  }
+
+  private final EventSink liveEvents = new EventSink() {
+    @Override
+    public boolean isObserved(String eventName) {
+      return StripeTerminal.this.isObserved(eventName);
+    }
+
+    @Override
+    public void emit(String eventName, JSObject data) {
+      notifyListeners(eventName, data);
+    }
+  };
+
+  // builds events as if live for the listeners JS has now, but never sends
+  // them, records them in the trace or counts them in the metrics
+  private final EventSink replayEvents = new EventSink() {
+    @Override
+    public boolean isObserved(String eventName) {
+      return hasListeners(eventName);
+    }
+
+    @Override
+    public void emit(String eventName, JSObject data) {}
+  };
+
+  /**
+   * Runs the event handlers the SDK listener methods share, without the
+   * Terminal state, schedulers and monitors, persisted statistics or native
+   * `TerminalEventListener`s those methods also update.
+   */
+  private TraceReplayer.Target createReplayTarget() {
+    return new TraceReplayer.Target() {
+      @Override
+      public void onConnectionStatusChange(ConnectionStatus status) {
+        emitConnectionStatus(replayEvents, status);
+      }
+
+      @Override
+      public void onPaymentStatusChange(PaymentStatus status) {
+        emitPaymentStatus(replayEvents, status);
+      }
+
+      @Override
+      public void onReportReaderEvent(ReaderEvent event) {
+        emitReaderEvent(replayEvents, event);
+      }
+
+      @Override
+      public void onRequestReaderDisplayMessage(ReaderDisplayMessage message) {
+        emitReaderDisplayMessage(replayEvents, message);
+      }
+
+      @Override
+      public void onReportReaderSoftwareUpdateProgress(float progress) {
+        emitUpdateProgress(replayEvents, progress);
+      }
+
+      @Override
+      public void onReportLowBatteryWarning() {
+        emitLowBatteryWarning(replayEvents);
+      }
+
+      @Override
+      public void onBatteryLevelUpdate(
+        float batteryLevel,
+        BatteryStatus batteryStatus,
+        boolean isCharging
+      ) {
+        emitBatteryLevel(replayEvents, batteryLevel, batteryStatus, isCharging);
+      }
+
+      @Override
+      public void onReaderReconnectSucceeded() {
+        emitReaderReconnectSucceeded(replayEvents);
+      }
+    };
+  }
+
+  private void emitConnectionStatus(EventSink sink, ConnectionStatus status) {
+    if (sink.isObserved("didChangeConnectionStatus")) {
+      sink.emit(
+        "didChangeConnectionStatus",
+        TerminalUtils.serializeConnectionStatus(status)
+      );
+    }
+  }
+
+  private void emitPaymentStatus(EventSink sink, PaymentStatus status) {
+    if (sink.isObserved("didChangePaymentStatus")) {
+      sink.emit(
+        "didChangePaymentStatus",
+        TerminalUtils.serializePaymentStatus(status)
+      );
+    }
+  }
+
+  private void emitReaderEvent(EventSink sink, ReaderEvent event) {
+    if (sink.isObserved("didReportReaderEvent")) {
+      sink.emit(
+        "didReportReaderEvent",
+        TerminalUtils.serializeReaderEvent(event)
+      );
+    }
+  }
+
+  private void emitReaderDisplayMessage(
+    EventSink sink,
+    ReaderDisplayMessage message
+  ) {
+    if (sink.isObserved("didRequestReaderDisplayMessage")) {
+      sink.emit(
+        "didRequestReaderDisplayMessage",
+        TerminalUtils.serializeReaderDisplayMessage(message)
+      );
+    }
+  }
+
+  private void emitUpdateProgress(EventSink sink, float progress) {
+    if (sink.isObserved("didReportReaderSoftwareUpdateProgress")) {
+      sink.emit(
+        "didReportReaderSoftwareUpdateProgress",
+        TerminalUtils.serializeUpdateProgress(progress)
+      );
+    }
+  }
+
+  private void emitLowBatteryWarning(EventSink sink) {
+    sink.emit("didReportLowBatteryWarning", new JSObject());
+  }
+
+  private void emitBatteryLevel(
+    EventSink sink,
+    float batteryLevel,
+    BatteryStatus batteryStatus,
+    boolean isCharging
+  ) {
+    if (sink.isObserved("didReportBatteryLevel")) {
+      sink.emit(
+        "didReportBatteryLevel",
+        TerminalUtils.serializeBatteryLevel(
+          batteryLevel,
+          batteryStatus,
+          isCharging
+        )
+      );
+    }
+  }
+
+  private void emitReaderReconnectSucceeded(EventSink sink) {
+    sink.emit("didSucceedReaderReconnect", null);
+  }
+
+  private static String readFile(File file) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    char[] buffer = new char[8192];
+
+    try (
+      InputStreamReader reader = new InputStreamReader(
+        new FileInputStream(file),
+        StandardCharsets.UTF_8
+      )
+    ) {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        builder.append(buffer, 0, read);
+      }
+    }
+
+    return builder.toString();
+  }
+
+  @PluginMethod
+  public void setMetricsOptions(PluginCall call) {
+    metrics.configure(call);
+    call.resolve(metrics.serialize());
+  }
+
+  @PluginMethod
+  public void getMetricsFiles(final PluginCall call) {
+    metrics.flush(
+      paths -> {
+        JSObject ret = new JSObject();
+        ret.put("files", paths);
+        call.resolve(ret);
+      }
+    );
+  }
+
+  @PluginMethod
+  public void getPendingCalls(PluginCall call) {
+    call.resolve(watchdog.serialize());
+  }
+
+  @PluginMethod
+  public void exportLogs(PluginCall call) {
+    JSObject ret = new JSObject();
+    ret.put("lines", log.export());
+
+    if (call.getBoolean("clear", false)) {
+      log.clear();
+    }
+
     call.resolve(ret);
   }
 
@@ -230,50 +866,248 @@ public class StripeTerminal
         call.getInt("discoveryMethod", 0)
       );
 
+      if (
+        discoveryMethod == DiscoveryMethod.BLUETOOTH_SCAN && !bluetoothDeclared
+      ) {
+        call.reject(
+          "Bluetooth discovery is not in the discoveryMethods passed to initialize."
+        );
+        return;
+      }
+
+      // Bluetooth setup deferred by initialize happens on first use
+      if (
+        discoveryMethod == DiscoveryMethod.BLUETOOTH_SCAN && !bluetoothReady
+      ) {
+        if (needsBluetoothPermission()) {
+          requestPermissionForAlias(
+            "bluetooth",
+            call,
+            "discoveryBluetoothPermsCallback"
+          );
+          return;
+        }
+
+        enableBluetooth();
+      }
+
+      // durations are passed from JS in seconds
+      long timeout = call.getInt("timeout", 0) * 1000L;
+      long scanDuration = call.getInt("scanDuration", 0) * 1000L;
+      long pauseDuration = call.getInt("pauseDuration", 0) * 1000L;
+
+      discoveryFilter = ReaderFilter.fromJSObject(call.getObject("filter"));
+      discoveryPageSize = call.getInt("pageSize", 0);
+      filteredReadersList = new ArrayList<>();
+
+      // the timeout and duty cycle are handled by the plugin so the SDK is always
+      // told to scan until canceled
       DiscoveryConfiguration discoveryConfiguration = new DiscoveryConfiguration(
         0,
         discoveryMethod,
         simulated
       );
-      Callback statusCallback = new Callback() {
-        @Override
-        public void onSuccess() {
-          pendingDiscoverReaders = null;
-          call.resolve();
+
+      // Attempt to cancel any pending discoverReader calls first.
+      cancelDiscoverReaders();
+      // the SDK only runs one discovery at a time
+      localMobileWarmUp.cancelDiscovery();
+
+      // cached results are only kept for internet readers since they rarely move
+      long cacheTtl = call.getInt("cacheTtl", 0) * 1000L;
+      cacheDiscoveredReaders =
+        cacheTtl > 0 && discoveryMethod == DiscoveryMethod.INTERNET;
+      discoveryCacheLocation = call.getString("locationId");
+      cachedReaderSerials.clear();
+      cachedReadersList = null;
+
+      final DiscoverySession session = new DiscoverySession(
+        call,
+        discoveryConfiguration,
+        timeout,
+        scanDuration,
+        pauseDuration
+      );
+      discoverySession = session;
+      watchdog.watch(call, this::cancelDiscoverReaders);
+
+      if (timeout > 0) {
+        discoveryHandler.postAtTime(
+          () -> finishDiscovery(session, "timeout"),
+          session,
+          SystemClock.uptimeMillis() + timeout
+        );
+      }
+
+      if (cacheDiscoveredReaders) {
+        emitCachedReaders(cacheTtl);
+      }
+
+      startDiscoveryScan(session);
+    } catch (Exception e) {
+      log.error("discoverReaders failed", e);
+
+      if (e.getMessage() != null) {
+        call.reject(e.getMessage(), e);
+      }
+    }
+  }
+
+  @PermissionCallback
+  private void discoveryBluetoothPermsCallback(PluginCall call) {
+    if (!needsBluetoothPermission()) {
+      discoverReaders(call);
+    } else {
+      call.reject("Bluetooth permissions are required.");
+    }
+  }
+
+  private void startDiscoveryScan(final DiscoverySession session) {
+    if (session.finished) {
+      return;
+    }
+
+    session.startScan();
+    final int scan = session.scanCount;
+    // set once the SDK returns it, the callbacks only clear their own scan
+    final Cancelable[] cancelable = new Cancelable[1];
+
+    Callback statusCallback = new Callback() {
+      @Override
+      public void onSuccess() {
+        // ignore callbacks from a scan window that has already been replaced
+        if (scan != session.scanCount) {
+          return;
         }
 
-        @Override
-        public void onFailure(@NonNull TerminalException e) {
-          pendingDiscoverReaders = null;
-          call.reject(e.getErrorMessage(), e);
+        clearPendingDiscovery(cancelable[0]);
+        session.stopScan();
+
+        if (!session.pausing) {
+          finishDiscovery(session, "completed");
         }
-      };
+      }
 
-      // Attempt to cancel any pending discoverReader calls first.
-      cancelDiscoverReaders();
-      pendingDiscoverReaders =
+      @Override
+      public void onFailure(@NonNull TerminalException e) {
+        if (scan != session.scanCount) {
+          return;
+        }
+
+        clearPendingDiscovery(cancelable[0]);
+        session.stopScan();
+
+        if (!session.pausing && closeDiscoverySession(session)) {
+          session.call.reject(e.getErrorMessage(), e);
+        }
+      }
+    };
+
+    try {
+      cancelable[0] =
         Terminal
           .getInstance()
-          .discoverReaders(discoveryConfiguration, this, statusCallback);
+          .discoverReaders(session.configuration, this, statusCallback);
+      // the scan may have finished before the SDK returned
+      if (!cancelable[0].isCompleted()) {
+        pendingDiscoverReaders = cancelable[0];
+      }
     } catch (Exception e) {
-      e.printStackTrace();
+      log.error("discoverReaders failed", e);
 
-      if (e.getMessage() != null) {
-        call.reject(e.getMessage(), e);
+      if (closeDiscoverySession(session)) {
+        session.call.reject(e.getMessage(), e);
       }
+      return;
+    }
+
+    if (session.isDutyCycled()) {
+      discoveryHandler.postAtTime(
+        () -> pauseDiscoveryScan(session),
+        session,
+        SystemClock.uptimeMillis() + session.scanDuration
+      );
     }
   }
 
-  @PluginMethod
-  public void cancelDiscoverReaders(final PluginCall call) {
+  private void pauseDiscoveryScan(final DiscoverySession session) {
+    if (session.finished) {
+      return;
+    }
+
+    session.pausing = true;
+    session.stopScan();
+    cancelPendingDiscovery();
+
+    discoveryHandler.postAtTime(
+      () -> startDiscoveryScan(session),
+      session,
+      SystemClock.uptimeMillis() + session.pauseDuration
+    );
+  }
+
+  private void finishDiscovery(DiscoverySession session, String reason) {
+    if (session.finished) {
+      return;
+    }
+
+    boolean unsettled = closeDiscoverySession(session);
+
+    JSObject ret = session.serialize(reason);
+    recordTiming("discovery", ret.optLong("totalTime"));
+    notifyListeners("didFinishDiscovery", ret);
+
+    if (unsettled) {
+      session.call.resolve(ret);
+    }
+  }
+
+  /**
+   * Stops all scheduled work for the session and cancels the SDK discovery if
+   * it is still running. Returns false if the session was already closed or
+   * its call was already rejected by the watchdog, so it mustn't be settled.
+   */
+  private boolean closeDiscoverySession(DiscoverySession session) {
+    if (session.finished) {
+      return false;
+    }
+
+    session.finished = true;
+    discoveryHandler.removeCallbacksAndMessages(session);
+    boolean unsettled = watchdog.finish(session.call);
+
+    if (discoverySession == session) {
+      discoverySession = null;
+    }
+
     if (
-      pendingDiscoverReaders != null && !pendingDiscoverReaders.isCompleted()
+      session.cachedConnect != null && watchdog.finish(session.cachedConnect)
     ) {
-      pendingDiscoverReaders.cancel(
+      session.cachedConnect.reject("No reader found");
+    }
+    session.cachedConnect = null;
+
+    cancelPendingDiscovery();
+    return unsettled;
+  }
+
+  private void stopDiscovery(String reason) {
+    if (discoverySession != null) {
+      finishDiscovery(discoverySession, reason);
+    }
+  }
+
+  @PluginMethod
+  public void cancelDiscoverReaders(final PluginCall call) {
+    cancelPausedDiscovery();
+    final Cancelable cancelable = pendingDiscoverReaders;
+
+    if (cancelable != null && !cancelable.isCompleted()) {
+      cancelable.cancel(
         new Callback() {
           @Override
           public void onSuccess() {
-            pendingDiscoverReaders = null;
+            clearPendingDiscovery(cancelable);
             call.resolve();
           }
 
@@ -289,14 +1123,45 @@ public class StripeTerminal
   }
 
   public void cancelDiscoverReaders() {
+    cancelPausedDiscovery();
+    cancelPendingDiscovery();
+  }
+
+  /**
+   * A duty-cycled discovery has no SDK operation to cancel while it is paused,
+   * so its call has to be rejected here instead of by the SDK status callback.
+   */
+  private void cancelPausedDiscovery() {
+    DiscoverySession session = discoverySession;
+
     if (
-      pendingDiscoverReaders != null && !pendingDiscoverReaders.isCompleted()
+      session != null && !session.isScanning() && closeDiscoverySession(session)
     ) {
-      pendingDiscoverReaders.cancel(
+      session.call.reject("Discovery was canceled");
+    }
+  }
+
+  /**
+   * Forgets the SDK discovery once it has finished, unless a newer one has
+   * replaced it in the meantime.
+   */
+  private void clearPendingDiscovery(Cancelable cancelable) {
+    if (cancelable != null && pendingDiscoverReaders == cancelable) {
+      pendingDiscoverReaders = null;
+    }
+  }
+
+  private void cancelPendingDiscovery() {
+    final Cancelable cancelable = pendingDiscoverReaders;
+
+    if (cancelable != null && !cancelable.isCompleted()) {
+      cancelable.cancel(
         new Callback() {
           @Override
           public void onSuccess() {
-            pendingDiscoverReaders = null;
+            if (pendingDiscoverReaders == cancelable) {
+              pendingDiscoverReaders = null;
+            }
           }
 
           @Override
@@ -306,6 +1171,104 @@ public class StripeTerminal
     }
   }
 
+  @PluginMethod
+  public void getDiscoveredReaders(final PluginCall call) {
+    JSArray cached = cachedReadersList;
+    int total = cached != null ? cached.length() : filteredReadersList.size();
+    int offset = Math.max(call.getInt("offset", 0), 0);
+    int limit = call.getInt("limit", total);
+
+    JSObject ret = new JSObject();
+    ret.put(
+      "readers",
+      cached != null
+        ? page(cached, offset, limit)
+        : serializeReaders(filteredReadersList, offset, limit)
+    );
+    ret.put("total", total);
+    call.resolve(ret);
+  }
+
+  private static JSArray page(JSArray readers, int offset, int limit) {
+    JSArray page = new JSArray();
+    int end = limit > 0
+      ? Math.min(readers.length(), offset + limit)
+      : readers.length();
+
+    for (int i = offset; i < end; i++) {
+      page.put(readers.opt(i));
+    }
+
+    return page;
+  }
+
+  /**
+   * Sends the cached readers for the discovery location to JS right away. The
+   * live discovery replaces them as soon as it reports its first results.
+   */
+  private void emitCachedReaders(long ttl) {
+    JSArray cached = readerCache.get(discoveryCacheLocation, ttl);
+
+    if (cached == null) {
+      return;
+    }
+
+    // the same filter and paging as the live results
+    JSArray readers = discoveryFilter.apply(cached);
+    cachedReadersList = readers;
+
+    for (int i = 0; i < readers.length(); i++) {
+      JSONObject reader = readers.optJSONObject(i);
+      if (reader != null && reader.has("serialNumber")) {
+        cachedReaderSerials.add(reader.optString("serialNumber"));
+      }
+    }
+
+    JSObject ret = new JSObject();
+    ret.put("readers", page(readers, 0, discoveryPageSize));
+    ret.put("total", readers.length());
+    ret.put("cached", true);
+    ret.put("platform", "android");
+
+    notifyListeners("readersDiscovered", ret);
+  }
+
+  @PluginMethod
+  public void clearReaderCache(final PluginCall call) {
+    readerCache.clear();
+    call.resolve();
+  }
+
+  private JSArray serializeReaders(List<Reader> readers, int offset, int limit) {
+    long startedAt = SystemClock.elapsedRealtime();
+    JSArray readersArr = new JSArray();
+    int end = limit > 0 ? Math.min(readers.size(), offset + limit) : readers.size();
+
+    for (int i = offset; i < end; i++) {
+      readersArr.put(TerminalUtils.serializeReader(readers.get(i)));
+    }
+
+    recordTiming("serialize.readers", SystemClock.elapsedRealtime() - startedAt);
+    return readersArr;
+  }
+
+  private Object serializePaymentIntent(
+    PaymentIntent paymentIntent,
+    String currency
+  ) {
+    long startedAt = SystemClock.elapsedRealtime();
+    Object serialized = TerminalUtils.serializePaymentIntent(
+      paymentIntent,
+      currency
+    );
+
+    recordTiming(
+      "serialize.paymentIntent",
+      SystemClock.elapsedRealtime() - startedAt
+    );
+    return serialized;
+  }
+
   private Reader getReaderFromDiscovered(PluginCall call) {
     String serialNumber = call.getString("serialNumber");
 
@@ -314,6 +1277,16 @@ public class StripeTerminal
       return null;
     }
 
+    Reader selectedReader = findDiscoveredReader(serialNumber);
+
+    if (selectedReader == null) {
+      call.reject("No reader found");
+    }
+
+    return selectedReader;
+  }
+
+  private Reader findDiscoveredReader(String serialNumber) {
     Reader selectedReader = null;
     if (discoveredReadersList != null && discoveredReadersList.size() > 0) {
       for (Reader reader : discoveredReadersList) {
@@ -325,52 +1298,194 @@ public class StripeTerminal
       }
     }
 
-    if (selectedReader == null) {
-      call.reject("No reader found");
-    }
-
     return selectedReader;
   }
 
-  private ReaderCallback createReaderCallback(final PluginCall call) {
-    return new ReaderCallback() {
-      @Override
-      public void onSuccess(@NonNull Reader reader) {
+  private TerminalFuture.Completion<Reader> createReaderCompletion(
+    final PluginCall call,
+    final ReaderConnection connection
+  ) {
+    final long startedAt = SystemClock.elapsedRealtime();
+    watchdog.watch(call);
+
+    return (reader, e) -> {
+      traceResult(call.getMethodName(), e);
+      boolean unsettled = watchdog.finish(call);
+      recordTiming("connect", SystemClock.elapsedRealtime() - startedAt);
+
+      if (e != null) {
+        if (unsettled) {
+          call.reject(e.getErrorMessage(), e);
+        }
+        return;
+      }
+
+      // no need to keep scanning once a reader is connected
+      stopDiscovery("connected");
+      readerState.reset(reader);
+      lastConnection = connection.withReader(reader);
+      readerDisplayActive = false;
+      readerHealth.reset();
+
+      for (TerminalEventListener listener : eventListeners) {
+        listener.onReaderConnected(reader);
+      }
+
+      // the reader is connected even if the call expired in the meantime
+      if (unsettled) {
         JSObject ret = new JSObject();
         ret.put("reader", TerminalUtils.serializeReader(reader));
         call.resolve(ret);
       }
+    };
+  }
 
-      @Override
-      public void onFailure(@NonNull TerminalException e) {
-        call.reject(e.getErrorMessage(), e);
+  @PluginMethod
+  public void connectInternetReader(final PluginCall call) {
+    String serialNumber = call.getString("serialNumber");
+    DiscoverySession session = discoverySession;
+
+    if (
+      serialNumber != null &&
+      session != null &&
+      cachedReaderSerials.contains(serialNumber) &&
+      findDiscoveredReader(serialNumber) == null
+    ) {
+      // the reader was only shown from the cache, so connect as soon as the
+      // live discovery reports it
+      if (
+        session.cachedConnect != null && watchdog.finish(session.cachedConnect)
+      ) {
+        session.cachedConnect.reject(
+          "Connection was replaced by a newer request"
+        );
       }
-    };
+      session.cachedConnect = call;
+      // the connect keeps this registration once the reader shows up
+      watchdog.watch(
+        call,
+        () -> {
+          if (session.cachedConnect == call) {
+            session.cachedConnect = null;
+          }
+        }
+      );
+      return;
+    }
+
+    Reader reader = getReaderFromDiscovered(call);
+
+    if (reader == null) {
+      return;
+    }
+
+    Boolean failIfInUse = call.getBoolean("failIfInUse", false);
+    // TODO: Add below when supported
+    // Boolean allowCustomerCancel = call.getBoolean("allowCustomerCancel", false);
+
+    final InternetConnectionConfiguration connectionConfig = new InternetConnectionConfiguration(
+      failIfInUse
+    );
+    final TerminalFuture.Completion<Reader> completion = this.createReaderCompletion(
+      call,
+      ReaderConnection.internet(reader, connectionConfig)
+    );
+
+    if (
+      !retries.run(
+        "connectInternetReader",
+        attempt ->
+          attemptConnectInternetReader(
+            reader,
+            connectionConfig,
+            completion,
+            CallWatchdog.deadline(call),
+            attempt
+          )
+      )
+    ) {
+      rejectCircuitOpen(call);
+    }
+  }
+
+  private void attemptConnectInternetReader(
+    final Reader reader,
+    final InternetConnectionConfiguration connectionConfig,
+    final TerminalFuture.Completion<Reader> completion,
+    final long deadline,
+    final int attempt
+  ) {
+    TerminalOperations
+      .connectInternetReader(reader, connectionConfig)
+      .whenComplete(
+        (connectedReader, e) -> {
+          if (e == null) {
+            retries.onSuccess("connectInternetReader");
+            completion.complete(connectedReader, null);
+            return;
+          }
+
+          boolean retrying = retries.retry(
+            "connectInternetReader",
+            e,
+            attempt,
+            deadline,
+            next ->
+              attemptConnectInternetReader(
+                reader,
+                connectionConfig,
+                completion,
+                deadline,
+                next
+              )
+          );
+
+          if (!retrying) {
+            completion.complete(null, e);
+          }
+        }
+      );
+  }
+
+  private void rejectCircuitOpen(PluginCall call) {
+    if (!watchdog.finish(call)) {
+      return;
+    }
+    call.reject(
+      call.getMethodName() + " is failing, try again later",
+      "CIRCUIT_OPEN"
+    );
   }
 
   @PluginMethod
-  public void connectInternetReader(final PluginCall call) {
-    Reader reader = getReaderFromDiscovered(call);
+  public void setRetryPolicy(final PluginCall call) {
+    String method = call.getString("method");
 
-    if (reader == null) {
+    if (method == null) {
+      call.reject("Must provide a method");
       return;
     }
 
-    Boolean failIfInUse = call.getBoolean("failIfInUse", false);
-    // TODO: Add below when supported
-    // Boolean allowCustomerCancel = call.getBoolean("allowCustomerCancel", false);
+    try {
+      RetryPolicy policy = retries.policy(method);
+      policy.configure(call);
+      call.resolve(policy.serialize());
+    } catch (JSONException e) {
+      log.error("setRetryPolicy received invalid options", e);
+      call.reject(e.getLocalizedMessage(), null, e);
+    }
+  }
 
-    InternetConnectionConfiguration connectionConfig = new InternetConnectionConfiguration(
-      failIfInUse
-    );
+  @PluginMethod
+  public void getRetryPolicy(final PluginCall call) {
+    String method = call.getString("method");
 
-    Terminal
-      .getInstance()
-      .connectInternetReader(
-        reader,
-        connectionConfig,
-        this.createReaderCallback(call)
-      );
+    if (method == null) {
+      call.reject("Must provide a method");
+      return;
+    }
+
+    call.resolve(retries.policy(method).serialize());
   }
 
   @PluginMethod
@@ -396,17 +1511,14 @@ public class StripeTerminal
     BluetoothConnectionConfiguration connectionConfig = new BluetoothConnectionConfiguration(
       locationId,
       autoReconnectOnUnexpectedDisconnect,
-      this
+      TerminalHost.INSTANCE
     );
 
-    Terminal
-      .getInstance()
-      .connectBluetoothReader(
-        reader,
-        connectionConfig,
-        this,
-        this.createReaderCallback(call)
-      );
+    ReaderConnection connection = ReaderConnection.bluetooth(
+      reader,
+      connectionConfig
+    );
+    connection.connect().whenComplete(createReaderCompletion(call, connection));
   }
 
   @PluginMethod
@@ -428,18 +1540,33 @@ public class StripeTerminal
       locationId
     );
 
-    Terminal
-      .getInstance()
-      .connectUsbReader(
-        reader,
-        connectionConfig,
-        this,
-        this.createReaderCallback(call)
-      );
+    ReaderConnection connection = ReaderConnection.usb(
+      reader,
+      connectionConfig
+    );
+    connection.connect().whenComplete(createReaderCompletion(call, connection));
   }
 
   @PluginMethod
   public void connectLocalMobileReader(final PluginCall call) {
+    Reader connectedReader = Terminal.getInstance().getConnectedReader();
+    String serialNumber = call.getString("serialNumber");
+
+    // the warmed-up reader is already connected, so there is nothing to wait for
+    if (
+      localMobileWarmUp.isReady() &&
+      connectedReader != null &&
+      (
+        serialNumber == null ||
+        serialNumber.equals(connectedReader.getSerialNumber())
+      )
+    ) {
+      JSObject ret = new JSObject();
+      ret.put("reader", TerminalUtils.serializeReader(connectedReader));
+      call.resolve(ret);
+      return;
+    }
+
     Reader reader = getReaderFromDiscovered(call);
 
     if (reader == null) {
@@ -457,13 +1584,11 @@ public class StripeTerminal
       locationId
     );
 
-    Terminal
-      .getInstance()
-      .connectLocalMobileReader(
-        reader,
-        connectionConfig,
-        this.createReaderCallback(call)
-      );
+    ReaderConnection connection = ReaderConnection.localMobile(
+      reader,
+      connectionConfig
+    );
+    connection.connect().whenComplete(createReaderCompletion(call, connection));
   }
 
   @PluginMethod
@@ -485,33 +1610,39 @@ public class StripeTerminal
       locationId
     );
 
-    Terminal
-      .getInstance()
-      .connectHandoffReader(
-        reader,
-        connectionConfig,
-        this,
-        this.createReaderCallback(call)
-      );
+    ReaderConnection connection = ReaderConnection.handoff(
+      reader,
+      connectionConfig
+    );
+    connection.connect().whenComplete(createReaderCompletion(call, connection));
   }
 
   @PluginMethod
   public void disconnectReader(final PluginCall call) {
+    updateScheduler.cancel();
+    localMobileWarmUp.onDisconnected();
+    readerState.clear();
+    lastConnection = null;
+    readerDisplayActive = false;
+    reconnector.cancel();
+
     if (Terminal.getInstance().getConnectedReader() == null) {
       call.resolve();
     } else {
-      Terminal
-        .getInstance()
-        .disconnectReader(
-          new Callback() {
-            @Override
-            public void onSuccess() {
-              call.resolve();
+      watchdog.watch(call);
+
+      TerminalOperations
+        .disconnectReader()
+        .whenComplete(
+          (result, e) -> {
+            if (!watchdog.finish(call)) {
+              return;
             }
 
-            @Override
-            public void onFailure(@NonNull TerminalException e) {
+            if (e != null) {
               call.reject(e.getErrorMessage(), e);
+            } else {
+              call.resolve();
             }
           }
         );
@@ -559,39 +1690,85 @@ public class StripeTerminal
 
   @PluginMethod
   public void retrievePaymentIntent(final PluginCall call) {
-    String clientSecret = call.getString("clientSecret");
+    updateScheduler.onPaymentActivity();
+    final String clientSecret = call.getString("clientSecret");
 
     if (clientSecret != null) {
-      Terminal
-        .getInstance()
-        .retrievePaymentIntent(
-          clientSecret,
-          new PaymentIntentCallback() {
-            @Override
-            public void onSuccess(@NonNull PaymentIntent paymentIntent) {
+      final String key = SingleFlight.key("retrievePaymentIntent", clientSecret);
+
+      watchdog.watch(call);
+
+      // an identical retrieve is already running, share its result
+      if (!singleFlight.join(key, call)) {
+        return;
+      }
+
+      if (
+        !retries.run(
+          "retrievePaymentIntent",
+          attempt -> attemptRetrievePaymentIntent(clientSecret, key, attempt)
+        )
+      ) {
+        for (PluginCall waiting : singleFlight.complete(key)) {
+          rejectCircuitOpen(waiting);
+        }
+      }
+    } else {
+      call.reject("Client secret cannot be null");
+    }
+  }
+
+  private void attemptRetrievePaymentIntent(
+    final String clientSecret,
+    final String key,
+    final int attempt
+  ) {
+    try {
+      TerminalOperations
+        .retrievePaymentIntent(clientSecret)
+        .whenComplete(
+          (paymentIntent, e) -> {
+            traceResult("retrievePaymentIntent", e);
+
+            if (e == null) {
+              retries.onSuccess("retrievePaymentIntent");
               currentPaymentIntent = paymentIntent;
               JSObject ret = new JSObject();
               ret.put(
                 "intent",
-                TerminalUtils.serializePaymentIntent(paymentIntent, "")
+                serializePaymentIntent(paymentIntent, "")
               );
-              call.resolve(ret);
+              singleFlight.resolve(key, ret);
+              return;
             }
 
-            @Override
-            public void onFailure(@NonNull TerminalException e) {
-              currentPaymentIntent = null;
-              call.reject(e.getErrorMessage(), e);
+            boolean retrying = retries.retry(
+              "retrievePaymentIntent",
+              e,
+              attempt,
+              singleFlight.deadline(key),
+              next -> attemptRetrievePaymentIntent(clientSecret, key, next)
+            );
+
+            if (retrying) {
+              return;
+            }
+
+            currentPaymentIntent = null;
+            for (PluginCall waiting : singleFlight.complete(key)) {
+              waiting.reject(e.getErrorMessage(), e);
             }
           }
         );
-    } else {
-      call.reject("Client secret cannot be null");
+    } catch (Exception e) {
+      // don't leave the key in flight if the SDK throws before calling back
+      singleFlight.reject(key, e);
     }
   }
 
   @PluginMethod
   public void collectPaymentMethod(final PluginCall call) {
+    updateScheduler.onPaymentActivity();
     Boolean updatePaymentIntent = call.getBoolean("updatePaymentIntent", false);
 
     CollectConfiguration collectConfig = new CollectConfiguration.Builder()
@@ -599,41 +1776,46 @@ public class StripeTerminal
       .build();
 
     if (currentPaymentIntent != null) {
-      pendingCollectPaymentMethod =
-        Terminal
-          .getInstance()
-          .collectPaymentMethod(
-            currentPaymentIntent,
-            new PaymentIntentCallback() {
-              @Override
-              public void onSuccess(@NonNull PaymentIntent paymentIntent) {
-                pendingCollectPaymentMethod = null;
-                currentPaymentIntent = paymentIntent;
-
-                JSObject ret = new JSObject();
-                ret.put(
-                  "intent",
-                  TerminalUtils.serializePaymentIntent(
-                    paymentIntent,
-                    lastCurrency
-                  )
-                );
-
-                call.resolve(ret);
-              }
+      watchdog.watch(call, this::cancelCollectPaymentMethod);
 
-              @Override
-              public void onFailure(@NonNull TerminalException e) {
-                pendingCollectPaymentMethod = null;
-                call.reject(
-                  e.getErrorMessage(),
-                  e.getErrorCode().toString(),
-                  e
-                );
-              }
-            },
-            collectConfig
+      // the reader replaces the cart with its own payment screen
+      readerDisplayActive = false;
+
+      TerminalFuture<PaymentIntent> collect = trackCollectPaymentMethod(
+        TerminalOperations.collectPaymentMethod(
+          currentPaymentIntent,
+          collectConfig
+        )
+      );
+
+      collect.whenComplete(
+        (paymentIntent, e) -> {
+          traceResult("collectPaymentMethod", e);
+          boolean unsettled = watchdog.finish(call);
+
+          if (e != null) {
+            if (unsettled) {
+              call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+            }
+            return;
+          }
+
+          currentPaymentIntent = paymentIntent;
+
+          // the intent is collected even if the call expired in the meantime
+          if (!unsettled) {
+            return;
+          }
+
+          JSObject ret = new JSObject();
+          ret.put(
+            "intent",
+            serializePaymentIntent(paymentIntent, lastCurrency)
           );
+
+          call.resolve(ret);
+        }
+      );
     } else {
       call.reject(
         "There is no active payment intent. Make sure you called retrievePaymentIntent first"
@@ -641,17 +1823,179 @@ public class StripeTerminal
     }
   }
 
+  /**
+   * Makes the collect the one `cancelCollectPaymentMethod` cancels, until it
+   * finishes. A newer collect replacing it is left alone.
+   */
+  private TerminalFuture<PaymentIntent> trackCollectPaymentMethod(
+    final TerminalFuture<PaymentIntent> collect
+  ) {
+    pendingCollectPaymentMethod = collect;
+
+    return collect.whenComplete(
+      (collected, e) -> {
+        if (pendingCollectPaymentMethod == collect) {
+          pendingCollectPaymentMethod = null;
+        }
+      }
+    );
+  }
+
   @PluginMethod
   public void cancelCollectPaymentMethod(final PluginCall call) {
-    if (
-      pendingCollectPaymentMethod != null &&
-      !pendingCollectPaymentMethod.isCompleted()
-    ) {
+    if (pendingCollectPaymentMethod != null) {
+      pendingCollectPaymentMethod.cancel(
+        new Callback() {
+          @Override
+          public void onSuccess() {
+            call.resolve();
+          }
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {
+            call.reject(e.getErrorMessage());
+          }
+        }
+      );
+    } else {
+      call.resolve();
+    }
+  }
+
+  public void cancelCollectPaymentMethod() {
+    if (pendingCollectPaymentMethod != null) {
       pendingCollectPaymentMethod.cancel(
+        new Callback() {
+          @Override
+          public void onSuccess() {}
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {}
+        }
+      );
+    }
+  }
+
+  @PluginMethod
+  public void processPayment(final PluginCall call) {
+    updateScheduler.onPaymentActivity();
+    if (currentPaymentIntent != null) {
+      watchdog.watch(call);
+
+      final PaymentIntent paymentIntent = currentPaymentIntent;
+      if (
+        !retries.run(
+          "processPayment",
+          attempt -> attemptProcessPayment(paymentIntent, call, attempt)
+        )
+      ) {
+        rejectCircuitOpen(call);
+      }
+    } else {
+      call.reject(
+        "There is no active payment intent. Make sure you called retrievePaymentIntent first"
+      );
+    }
+  }
+
+  private void attemptProcessPayment(
+    final PaymentIntent intent,
+    final PluginCall call,
+    final int attempt
+  ) {
+    TerminalOperations
+      .processPayment(intent)
+      .whenComplete(
+        (paymentIntent, e) -> {
+          traceResult("processPayment", e);
+
+          if (e == null) {
+            retries.onSuccess("processPayment");
+            recordTransaction(paymentIntent, null);
+            currentPaymentIntent = paymentIntent;
+
+            // the payment went through even if the call expired meanwhile
+            if (!watchdog.finish(call)) {
+              return;
+            }
+
+            JSObject ret = new JSObject();
+            ret.put(
+              "intent",
+              serializePaymentIntent(paymentIntent, lastCurrency)
+            );
+            call.resolve(ret);
+            return;
+          }
+
+          boolean retrying = retries.retry(
+            "processPayment",
+            e,
+            attempt,
+            CallWatchdog.deadline(call),
+            next -> attemptProcessPayment(intent, call, next)
+          );
+
+          if (!retrying) {
+            recordTransaction(null, e);
+            if (watchdog.finish(call)) {
+              call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+            }
+          }
+        }
+      );
+  }
+
+  @PluginMethod
+  public void collectRefundPaymentMethod(final PluginCall call) {
+    RefundQueue.Request request = RefundQueue.Request.fromJSObject(
+      0,
+      call.getData()
+    );
+
+    if (request == null) {
+      call.reject("Must provide a charge ID, amount and currency");
+      return;
+    }
+
+    if (refundQueue.isRunning()) {
+      call.reject("Refunds are being processed by the refund queue");
+      return;
+    }
+
+    updateScheduler.onPaymentActivity();
+    watchdog.watch(call, this::cancelCollectRefundPaymentMethod);
+
+    pendingCollectRefundPaymentMethod =
+      TerminalOperations.collectRefundPaymentMethod(request.toParameters());
+
+    pendingCollectRefundPaymentMethod.whenComplete(
+      (collected, e) -> {
+        traceResult("collectRefundPaymentMethod", e);
+        pendingCollectRefundPaymentMethod = null;
+
+        if (!watchdog.finish(call)) {
+          return;
+        }
+
+        if (e != null) {
+          call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+          return;
+        }
+
+        call.resolve();
+      }
+    );
+  }
+
+  @PluginMethod
+  public void cancelCollectRefundPaymentMethod(final PluginCall call) {
+    if (pendingCollectRefundPaymentMethod != null) {
+      pendingCollectRefundPaymentMethod.cancel(
         new Callback() {
           @Override
           public void onSuccess() {
-            pendingCollectPaymentMethod = null;
+            pendingCollectRefundPaymentMethod = null;
             call.resolve();
           }
 
@@ -666,39 +2010,289 @@ public class StripeTerminal
     }
   }
 
+  public void cancelCollectRefundPaymentMethod() {
+    if (pendingCollectRefundPaymentMethod != null) {
+      pendingCollectRefundPaymentMethod.cancel(
+        new Callback() {
+          @Override
+          public void onSuccess() {
+            pendingCollectRefundPaymentMethod = null;
+          }
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {}
+        }
+      );
+    }
+  }
+
+  @PluginMethod
+  public void processRefund(final PluginCall call) {
+    updateScheduler.onPaymentActivity();
+    watchdog.watch(call);
+
+    final long startedAt = SystemClock.elapsedRealtime();
+
+    TerminalOperations
+      .processRefund()
+      .whenComplete(
+        (refund, e) -> {
+          traceResult("processRefund", e);
+          if (!watchdog.finish(call)) {
+            return;
+          }
+
+          if (e != null) {
+            call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+            return;
+          }
+
+          JSObject ret = new JSObject();
+          ret.put("refund", TerminalUtils.serializeRefund(refund));
+          ret.put("processTime", SystemClock.elapsedRealtime() - startedAt);
+          call.resolve(ret);
+        }
+      );
+  }
+
+  /**
+   * Collects and processes every refund in `refunds` on the connected reader,
+   * one after the other, sending `didProcessRefund` with the timing of each.
+   * Resolves once the queue is empty or canceled.
+   */
+  @PluginMethod
+  public void processRefunds(final PluginCall call) {
+    List<RefundQueue.Request> requests = new ArrayList<>();
+
+    try {
+      JSArray refunds = call.getArray("refunds", new JSArray());
+      for (int i = 0; i < refunds.length(); i++) {
+        RefundQueue.Request request = RefundQueue.Request.fromJSObject(
+          i,
+          JSObject.fromJSONObject(refunds.getJSONObject(i))
+        );
+
+        if (request == null) {
+          call.reject(
+            "Refund " + i + " needs a charge ID, amount and currency"
+          );
+          return;
+        }
+        requests.add(request);
+      }
+    } catch (JSONException e) {
+      log.error("processRefunds received invalid refunds", e);
+      call.reject(e.getLocalizedMessage(), null, e);
+      return;
+    }
+
+    if (pendingCollectRefundPaymentMethod != null) {
+      call.reject("A refund is already being collected");
+      return;
+    }
+
+    updateScheduler.onPaymentActivity();
+    watchdog.watch(call, refundQueue::cancel);
+
+    boolean started = refundQueue.start(
+      requests,
+      new RefundQueue.Listener() {
+        @Override
+        public void onRefundFinished(JSObject result) {
+          recordTiming("refund", result.optLong("totalTime"));
+          notifyListeners("didProcessRefund", result);
+        }
+
+        @Override
+        public void onQueueFinished(JSObject summary) {
+          if (watchdog.finish(call)) {
+            call.resolve(summary);
+          }
+        }
+      }
+    );
+
+    if (!started && watchdog.finish(call)) {
+      call.reject("Refunds are already being processed");
+    }
+  }
+
+  @PluginMethod
+  public void cancelProcessRefunds(PluginCall call) {
+    refundQueue.cancel();
+    call.resolve();
+  }
+
+  /**
+   * Registers a listener for Terminal events, for use by other native plugins.
+   * The plugin instance can be looked up with
+   * `bridge.getPlugin("StripeTerminal").getInstance()`.
+   */
+  public void addTerminalEventListener(
+    @NonNull TerminalEventListener listener
+  ) {
+    eventListeners.add(listener);
+  }
+
+  public void removeTerminalEventListener(
+    @NonNull TerminalEventListener listener
+  ) {
+    eventListeners.remove(listener);
+  }
+
+  private TerminalFuture.Completion<PaymentIntent> deliverTo(
+    final PaymentIntentCallback callback
+  ) {
+    return (paymentIntent, e) -> {
+      if (e != null) {
+        callback.onFailure(e);
+      } else {
+        currentPaymentIntent = paymentIntent;
+        callback.onSuccess(paymentIntent);
+      }
+    };
+  }
+
+  /**
+   * Native equivalent of the `retrievePaymentIntent` plugin method. The intent
+   * becomes the current one, so JS and native callers can continue the same
+   * payment.
+   */
+  public void retrievePaymentIntent(
+    @NonNull String clientSecret,
+    @NonNull PaymentIntentCallback callback
+  ) {
+    updateScheduler.onPaymentActivity();
+    TerminalOperations
+      .retrievePaymentIntent(clientSecret)
+      .whenComplete(deliverTo(callback));
+  }
+
+  /**
+   * Native equivalent of the `collectPaymentMethod` plugin method. It can be
+   * canceled with `cancelCollectPaymentMethod()`.
+   */
+  public void collectPaymentMethod(
+    @NonNull PaymentIntent paymentIntent,
+    @NonNull CollectConfiguration config,
+    @NonNull PaymentIntentCallback callback
+  ) {
+    updateScheduler.onPaymentActivity();
+    TerminalFuture<PaymentIntent> collect = trackCollectPaymentMethod(
+      TerminalOperations.collectPaymentMethod(paymentIntent, config)
+    );
+    collect.whenComplete(deliverTo(callback));
+  }
+
+  /**
+   * Native equivalent of the `processPayment` plugin method.
+   */
+  public void processPayment(
+    @NonNull PaymentIntent paymentIntent,
+    @NonNull PaymentIntentCallback callback
+  ) {
+    updateScheduler.onPaymentActivity();
+    TerminalOperations
+      .processPayment(paymentIntent)
+      .whenComplete(this::recordTransaction)
+      .whenComplete(deliverTo(callback));
+  }
+
+  /**
+   * Retrieves, collects and processes a payment in one go, e.g. for a scanner
+   * that starts a sale by itself.
+   */
+  public void collectAndProcessPayment(
+    @NonNull String clientSecret,
+    @NonNull final CollectConfiguration config,
+    @NonNull PaymentIntentCallback callback
+  ) {
+    updateScheduler.onPaymentActivity();
+    TerminalOperations
+      .retrievePaymentIntent(clientSecret)
+      .thenCompose(
+        paymentIntent ->
+          trackCollectPaymentMethod(
+            TerminalOperations.collectPaymentMethod(paymentIntent, config)
+          )
+      )
+      .thenCompose(
+        paymentIntent ->
+          TerminalOperations
+            .processPayment(paymentIntent)
+            .whenComplete(this::recordTransaction)
+      )
+      .whenComplete(deliverTo(callback));
+  }
+
+  /**
+   * Adds the outcome of `processPayment` to the ledger. Failures are only
+   * recorded when the SDK returns the intent with them.
+   */
+  private void recordTransaction(
+    PaymentIntent paymentIntent,
+    TerminalException e
+  ) {
+    PaymentIntent intent = e != null ? e.getPaymentIntent() : paymentIntent;
+    Reader reader = Terminal.getInstance().getConnectedReader();
+
+    try {
+      ledger.record(intent, reader != null ? reader.getSerialNumber() : null);
+    } catch (Exception ex) {
+      log.error("recording the transaction failed", ex);
+    }
+  }
+
+  private TransactionLedger.Query parseLedgerQuery(PluginCall call)
+    throws JSONException {
+    TransactionLedger.Query query = new TransactionLedger.Query();
+
+    Double from = call.getDouble("from");
+    Double to = call.getDouble("to");
+    if (from != null) query.from = from.longValue();
+    if (to != null) query.to = to.longValue();
+
+    JSArray statuses = call.getArray("status");
+    if (statuses != null) {
+      for (int i = 0; i < statuses.length(); i++) {
+        query.statuses.add(statuses.getInt(i));
+      }
+    }
+
+    query.limit = call.getInt("limit", 0);
+    query.offset = call.getInt("offset", 0);
+    return query;
+  }
+
   @PluginMethod
-  public void processPayment(final PluginCall call) {
-    if (currentPaymentIntent != null) {
-      Terminal
-        .getInstance()
-        .processPayment(
-          currentPaymentIntent,
-          new PaymentIntentCallback() {
-            @Override
-            public void onSuccess(@NonNull PaymentIntent paymentIntent) {
-              currentPaymentIntent = paymentIntent;
+  public void queryTransactions(final PluginCall call) {
+    try {
+      TransactionLedger.Query query = parseLedgerQuery(call);
 
-              JSObject ret = new JSObject();
-              ret.put(
-                "intent",
-                TerminalUtils.serializePaymentIntent(
-                  paymentIntent,
-                  lastCurrency
-                )
-              );
-              call.resolve(ret);
-            }
+      JSObject ret = new JSObject();
+      ret.put("transactions", ledger.query(query));
+      ret.put("totals", ledger.totals(query));
+      call.resolve(ret);
+    } catch (Exception e) {
+      log.error("queryTransactions failed", e);
+      call.reject(e.getLocalizedMessage(), null, e);
+    }
+  }
 
-            @Override
-            public void onFailure(@NonNull TerminalException e) {
-              call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
-            }
-          }
-        );
-    } else {
-      call.reject(
-        "There is no active payment intent. Make sure you called retrievePaymentIntent first"
+  @PluginMethod
+  public void clearTransactions(final PluginCall call) {
+    Double before = call.getDouble("before");
+
+    try {
+      JSObject ret = new JSObject();
+      ret.put(
+        "removed",
+        ledger.clear(before != null ? before.longValue() : Long.MAX_VALUE)
       );
+      call.resolve(ret);
+    } catch (Exception e) {
+      log.error("clearTransactions failed", e);
+      call.reject(e.getLocalizedMessage(), null, e);
     }
   }
 
@@ -711,11 +2305,39 @@ public class StripeTerminal
   @PluginMethod
   public void installAvailableUpdate(final PluginCall call) {
     if (currentUpdate != null) {
+      // an explicit install always wins over a scheduled one
+      updateScheduler.cancel();
       Terminal.getInstance().installAvailableUpdate();
       call.resolve();
     }
   }
 
+  @PluginMethod
+  public void setUpdateSchedule(final PluginCall call) {
+    updateScheduler.configure(call);
+    call.resolve(updateScheduler.serialize());
+  }
+
+  @PluginMethod
+  public void getUpdateSchedule(final PluginCall call) {
+    call.resolve(updateScheduler.serialize());
+  }
+
+  private boolean installScheduledUpdate(ReaderSoftwareUpdate update) {
+    Terminal terminal = Terminal.getInstance();
+
+    // never interrupt a sale, the scheduler will try again on its next check
+    if (
+      terminal.getConnectedReader() == null ||
+      terminal.getPaymentStatus() != PaymentStatus.READY
+    ) {
+      return false;
+    }
+
+    terminal.installAvailableUpdate();
+    return true;
+  }
+
   @PluginMethod
   public void cancelInstallUpdate(final PluginCall call) {
     if (pendingInstallUpdate != null && !pendingInstallUpdate.isCompleted()) {
@@ -765,7 +2387,7 @@ public class StripeTerminal
     try {
       lineItemsList = lineItems.toList();
     } catch (JSONException e) {
-      e.printStackTrace();
+      log.error("setReaderDisplay received invalid line items", e);
       call.reject(e.getLocalizedMessage(), null, e);
       return;
     }
@@ -782,7 +2404,7 @@ public class StripeTerminal
           CartLineItem li = new CartLineItem(displayName, quantity, amount);
           lineItemsArr.add(li);
         } catch (JSONException e) {
-          e.printStackTrace();
+          log.error("setReaderDisplay received an invalid line item", e);
           call.reject(e.getLocalizedMessage(), null, e);
           return;
         }
@@ -791,43 +2413,137 @@ public class StripeTerminal
 
     Cart cart = new Cart(currency, tax, total, lineItemsArr);
 
-    Terminal
-      .getInstance()
-      .setReaderDisplay(
-        cart,
-        new Callback() {
-          @Override
-          public void onSuccess() {
-            call.resolve();
-          }
-
-          @Override
-          public void onFailure(@NonNull TerminalException e) {
-            call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+    watchdog.watch(call);
+    TerminalOperations
+      .setReaderDisplay(cart)
+      .whenComplete(
+        (result, e) -> {
+          if (e == null) {
+            readerDisplayActive = true;
           }
         }
-      );
+      )
+      .whenComplete(createVoidCompletion(call));
   }
 
   @PluginMethod
   public void clearReaderDisplay(final PluginCall call) {
-    Terminal
-      .getInstance()
-      .clearReaderDisplay(
-        new Callback() {
-          @Override
-          public void onSuccess() {
-            call.resolve();
+    watchdog.watch(call);
+    TerminalOperations
+      .clearReaderDisplay()
+      .whenComplete(
+        (result, e) -> {
+          if (e == null) {
+            readerDisplayActive = false;
           }
+        }
+      )
+      .whenComplete(createVoidCompletion(call));
+  }
 
-          @Override
-          public void onFailure(@NonNull TerminalException e) {
-            call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+  @PluginMethod
+  public void setBackupReader(final PluginCall call) {
+    readerFailover.setBackupSerialNumber(call.getString("serialNumber"));
+    call.resolve(readerFailover.serialize());
+  }
+
+  @PluginMethod
+  public void getFailoverStatus(final PluginCall call) {
+    call.resolve(readerFailover.serialize());
+  }
+
+  @PluginMethod
+  public void getReaderStats(final PluginCall call) {
+    JSObject ret = new JSObject();
+    ret.put("readers", uptimeStats.serialize(call.getString("serialNumber")));
+    call.resolve(ret);
+  }
+
+  @PluginMethod
+  public void clearReaderStats(final PluginCall call) {
+    uptimeStats.clear();
+    call.resolve();
+  }
+
+  @PluginMethod
+  public void setReaderHealthOptions(final PluginCall call) {
+    readerHealth.configure(call);
+    call.resolve(readerHealth.serialize());
+  }
+
+  @PluginMethod
+  public void getReaderHealth(final PluginCall call) {
+    call.resolve(readerHealth.serialize());
+  }
+
+  /**
+   * Whether nothing is using the reader: no sale or refund in progress, no
+   * cart on its display and no update being installed.
+   */
+  boolean isReaderIdle() {
+    if (!Terminal.isInitialized()) {
+      return false;
+    }
+
+    Terminal terminal = Terminal.getInstance();
+
+    return (
+      terminal.getConnectedReader() != null &&
+      terminal.getPaymentStatus() == PaymentStatus.READY &&
+      pendingCollectPaymentMethod == null &&
+      pendingCollectRefundPaymentMethod == null &&
+      !refundQueue.isRunning() &&
+      !readerDisplayActive &&
+      (pendingInstallUpdate == null || pendingInstallUpdate.isCompleted())
+    );
+  }
+
+  /**
+   * Drops the current connection to the reader, ignoring any error, and
+   * connects it again the same way.
+   */
+  private TerminalFuture<Reader> reconnectReader(ReaderConnection connection) {
+    final long startedAt = SystemClock.elapsedRealtime();
+
+    // the reader may already be gone, reconnect either way
+    final TerminalFuture<Void> disconnected = new TerminalFuture<>();
+    TerminalOperations
+      .disconnectReader()
+      .whenComplete((result, e) -> disconnected.complete(null));
+
+    return disconnected
+      .thenCompose(result -> connection.connect())
+      .whenComplete(
+        (reader, e) -> {
+          traceResult("reconnectReader", e);
+          recordTiming("reconnect", SystemClock.elapsedRealtime() - startedAt);
+
+          if (e != null) {
+            log.error("reconnecting " + connection.getSerialNumber(), e);
+            return;
           }
+
+          onReaderReconnected(connection.withReader(reader));
         }
       );
   }
 
+  private TerminalFuture.Completion<Void> createVoidCompletion(
+    final PluginCall call
+  ) {
+    return (result, e) -> {
+      if (!watchdog.finish(call)) {
+        return;
+      }
+
+      if (e != null) {
+        call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+      } else {
+        call.resolve();
+      }
+    };
+  }
+
   @PluginMethod
   public void listLocations(@NonNull final PluginCall call) {
     Integer limit = call.getInt("limit");
@@ -839,34 +2555,82 @@ public class StripeTerminal
     if (limit != null || endingBefore != null || startingAfter != null) {
       params = new ListLocationsParameters(limit, endingBefore, startingAfter);
     }
+    final ListLocationsParameters listParams = params;
 
-    Terminal
-      .getInstance()
-      .listLocations(
-        params,
-        new LocationListCallback() {
-          @Override
-          public void onSuccess(@NonNull List<Location> list, boolean hasMore) {
-            JSObject object = new JSObject();
-            JSArray locationsArray = new JSArray();
-            for (Location location : list) {
-              if (location != null) {
-                locationsArray.put(TerminalUtils.serializeLocation(location));
+    final String key = SingleFlight.key(
+      "listLocations",
+      limit,
+      endingBefore,
+      startingAfter
+    );
+
+    watchdog.watch(call);
+
+    // an identical request is already running, share its result
+    if (!singleFlight.join(key, call)) {
+      return;
+    }
+
+    if (
+      !retries.run(
+        "listLocations",
+        attempt -> attemptListLocations(listParams, key, attempt)
+      )
+    ) {
+      for (PluginCall waiting : singleFlight.complete(key)) {
+        rejectCircuitOpen(waiting);
+      }
+    }
+  }
+
+  private void attemptListLocations(
+    final ListLocationsParameters params,
+    final String key,
+    final int attempt
+  ) {
+    try {
+      TerminalOperations
+        .listLocations(params)
+        .whenComplete(
+          (page, e) -> {
+            if (e == null) {
+              retries.onSuccess("listLocations");
+              JSObject object = new JSObject();
+              JSArray locationsArray = new JSArray();
+              for (Location location : page.locations) {
+                if (location != null) {
+                  locationsArray.put(TerminalUtils.serializeLocation(location));
+                }
               }
+
+              object.put("hasMore", page.hasMore);
+              object.put("locations", locationsArray);
+
+              singleFlight.resolve(key, object);
+              return;
             }
 
-            object.put("hasMore", hasMore);
-            object.put("locations", locationsArray);
+            boolean retrying = retries.retry(
+              "listLocations",
+              e,
+              attempt,
+              singleFlight.deadline(key),
+              next -> attemptListLocations(params, key, next)
+            );
 
-            call.resolve(object);
-          }
+            if (retrying) {
+              return;
+            }
 
-          @Override
-          public void onFailure(@NonNull TerminalException e) {
-            call.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+            for (PluginCall waiting : singleFlight.complete(key)) {
+              waiting.reject(e.getErrorMessage(), e.getErrorCode().toString(), e);
+            }
           }
-        }
-      );
+        );
+    } catch (Exception e) {
+      // don't leave the key in flight if the SDK throws before calling back
+      singleFlight.reject(key, e);
+    }
   }
 
   @PluginMethod
@@ -911,8 +2675,21 @@ public class StripeTerminal
     getSimulatorConfiguration(call);
   }
 
+  @PluginMethod
+  public void setAutoReconnectPolicy(final PluginCall call) {
+    reconnector.configure(call);
+    call.resolve(reconnector.serialize());
+  }
+
+  @PluginMethod
+  public void getAutoReconnectPolicy(final PluginCall call) {
+    call.resolve(reconnector.serialize());
+  }
+
   @PluginMethod
   public void cancelAutoReconnect(final PluginCall call) {
+    reconnector.cancel();
+
     if (
       pendingReaderAutoReconnect != null &&
       !pendingReaderAutoReconnect.isCompleted()
@@ -943,101 +2720,281 @@ public class StripeTerminal
     pendingConnectionTokenCallback = connectionTokenCallback;
 
     JSObject ret = new JSObject();
-    notifyListeners("requestConnectionToken", ret);
+    trace.record(TraceRecorder.EVENT, "requestConnectionToken", null, ret);
+    // retained, after an Activity restart the request arrives before the new
+    // JS side has added its listener and the SDK would wait forever
+    notifyListeners("requestConnectionToken", ret, true);
+  }
+
+  /**
+   * Takes over the state an earlier plugin instance kept about the connected
+   * reader, so health checks, failover and reconnects keep working after the
+   * Activity is re-created.
+   */
+  void restoreConnection(
+    ReaderConnection connection,
+    List<? extends Reader> readers
+  ) {
+    discoveredReadersList = readers;
+
+    if (!Terminal.isInitialized()) {
+      return;
+    }
+
+    Reader connected = Terminal.getInstance().getConnectedReader();
+    if (connected == null) {
+      return;
+    }
+
+    readerState.reset(connected);
+    if (
+      connection != null &&
+      connected.getSerialNumber() != null &&
+      connected.getSerialNumber().equals(connection.getSerialNumber())
+    ) {
+      lastConnection = connection.withReader(connected);
+    }
+  }
+
+  /**
+   * Sends the fields of the connected reader that changed since the last
+   * `didChangeReader` event.
+   */
+  private void emitReaderChanges() {
+    Reader reader = Terminal.getInstance().getConnectedReader();
+
+    // unobserved changes are picked up by the next patch that is sent
+    if (reader != null && isObserved("didChangeReader")) {
+      emitReaderChanges(readerState.update(reader));
+    }
+  }
+
+  private void emitReaderChanges(JSObject patch) {
+    if (patch != null) {
+      notifyListeners("didChangeReader", patch);
+    }
   }
 
   @Override
   public void onConnectionStatusChange(
     @NonNull ConnectionStatus connectionStatus
   ) {
-    JSObject ret = new JSObject();
-    ret.put(
-      "status",
-      TerminalUtils.translateConnectionStatusToJS(connectionStatus.ordinal())
-    );
-    ret.put("isAndroid", true);
-    notifyListeners("didChangeConnectionStatus", ret);
+    log.debug("connection status changed to " + connectionStatus);
+    trace.callback("onConnectionStatusChange", connectionStatus.name());
+    emitConnectionStatus(liveEvents, connectionStatus);
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onConnectionStatusChange(connectionStatus);
+    }
+
+    readerHealth.onConnectionStatusChange(connectionStatus);
+
+    emitReaderChanges();
   }
 
   @Override
   public void onPaymentStatusChange(@NonNull PaymentStatus paymentStatus) {
-    JSObject ret = new JSObject();
-    ret.put("status", paymentStatus.ordinal());
+    trace.callback("onPaymentStatusChange", paymentStatus.name());
+    updateScheduler.onPaymentActivity();
+    emitPaymentStatus(liveEvents, paymentStatus);
 
-    notifyListeners("didChangePaymentStatus", ret);
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onPaymentStatusChange(paymentStatus);
+    }
   }
 
   @Override
   public void onReportLowBatteryWarning() {
-    notifyListeners("didReportLowBatteryWarning", new JSObject());
+    trace.callback("onReportLowBatteryWarning", null);
+    emitLowBatteryWarning(liveEvents);
   }
 
   @Override
   public void onReportReaderEvent(@NonNull ReaderEvent readerEvent) {
+    trace.callback("onReportReaderEvent", readerEvent.name());
     lastReaderEvent = readerEvent;
-    JSObject ret = new JSObject();
-    ret.put("event", readerEvent.ordinal());
-    notifyListeners("didReportReaderEvent", ret);
+    emitReaderEvent(liveEvents, readerEvent);
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onReaderEvent(readerEvent);
+    }
+
+    emitReaderChanges();
   }
 
   @Override
   public void onUnexpectedReaderDisconnect(@NonNull Reader reader) {
-    JSObject ret = new JSObject();
-    ret.put("reader", TerminalUtils.serializeReader(reader));
-    notifyListeners("didReportUnexpectedReaderDisconnect", ret);
+    log.debug("unexpected disconnect from " + reader.getSerialNumber());
+    trace.callback("onUnexpectedReaderDisconnect", null);
+    updateScheduler.cancel();
+    readerState.clear();
+
+    // keep the Tap to Pay reader warm for the next customer
+    if (localMobileWarmUp.isReady()) {
+      localMobileWarmUp.restart();
+    }
+
+    if (isObserved("didReportUnexpectedReaderDisconnect")) {
+      JSObject ret = new JSObject();
+      ret.put("reader", TerminalUtils.serializeReader(reader));
+      notifyListeners("didReportUnexpectedReaderDisconnect", ret);
+    }
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onUnexpectedReaderDisconnect(reader);
+    }
+
+    if (readerFailover.canFailOver(lastConnection)) {
+      failOver(lastConnection);
+    } else if (reconnector.handles(lastConnection)) {
+      reconnector.start(lastConnection);
+    }
+  }
+
+  /**
+   * Takes over a connection the plugin made natively, without a call from JS.
+   */
+  private void onReaderReconnected(ReaderConnection connection) {
+    readerState.reset(connection.reader);
+    lastConnection = connection;
+    readerDisplayActive = false;
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onReaderConnected(connection.reader);
+    }
+  }
+
+  private void failOver(ReaderConnection failed) {
+    Reader backup = findDiscoveredReader(
+      readerFailover.getBackupSerialNumber()
+    );
+    log.debug(
+      "failing over from " +
+      failed.getSerialNumber() +
+      " to " +
+      readerFailover.getBackupSerialNumber()
+    );
+
+    readerFailover.start(
+      failed,
+      backup,
+      (result, connection) -> {
+        trace.record(TraceRecorder.RESULT, "failover", null, result);
+        recordTiming("failover", result.optLong("duration"));
+
+        if (connection != null) {
+          onReaderReconnected(connection);
+          result.put(
+            "reader",
+            TerminalUtils.serializeReader(connection.reader)
+          );
+        } else {
+          log.debug("failover failed: " + result.getString("error"));
+        }
+
+        notifyListeners("didFailoverReader", result);
+
+        // the original reader may still come back
+        if (connection == null && reconnector.handles(failed)) {
+          reconnector.start(failed);
+        }
+      }
+    );
   }
 
   @Override
   public void onUpdateDiscoveredReaders(@NonNull List<Reader> list) {
+    trace.callback("onUpdateDiscoveredReaders", null);
     discoveredReadersList = list;
+    cachedReadersList = null;
+    // filter before serializing so large fleets don't pay for readers JS will drop
+    filteredReadersList = discoveryFilter.apply(list);
+
+    boolean observed = isObserved("readersDiscovered");
+
+    if (observed || cacheDiscoveredReaders) {
+      JSArray readersDiscoveredArr = serializeReaders(
+        filteredReadersList,
+        0,
+        discoveryPageSize
+      );
 
-    JSArray readersDiscoveredArr = new JSArray();
-    for (Reader reader : list) {
-      if (reader != null) {
-        readersDiscoveredArr.put(TerminalUtils.serializeReader(reader));
+      // the cache keeps every reader so a different filter still finds them
+      if (cacheDiscoveredReaders) {
+        readerCache.put(
+          discoveryCacheLocation,
+          discoveryFilter.isEmpty() && discoveryPageSize <= 0
+            ? readersDiscoveredArr
+            : serializeReaders(list, 0, 0)
+        );
       }
-    }
 
-    JSObject ret = new JSObject();
-    ret.put("readers", readersDiscoveredArr);
-    ret.put("platform", "android");
+      if (observed) {
+        JSObject ret = new JSObject();
+        ret.put("readers", readersDiscoveredArr);
+        ret.put("total", filteredReadersList.size());
+        ret.put("cached", false);
+        ret.put("platform", "android");
 
-    notifyListeners("readersDiscovered", ret);
+        notifyListeners("readersDiscovered", ret);
+      }
+    }
+
+    DiscoverySession session = discoverySession;
+    if (
+      session != null &&
+      session.cachedConnect != null &&
+      findDiscoveredReader(session.cachedConnect.getString("serialNumber")) !=
+      null
+    ) {
+      PluginCall connectCall = session.cachedConnect;
+      session.cachedConnect = null;
+      connectInternetReader(connectCall);
+    }
   }
 
   @Override
   public void onRequestReaderDisplayMessage(
     @NonNull ReaderDisplayMessage readerDisplayMessage
   ) {
-    JSObject ret = new JSObject();
-    ret.put(
-      "value",
-      TerminalUtils.translateReaderDisplayMessageToJS(
-        readerDisplayMessage.ordinal()
-      )
+    trace.callback(
+      "onRequestReaderDisplayMessage",
+      readerDisplayMessage.name()
     );
-    ret.put("text", readerDisplayMessage.toString());
+    emitReaderDisplayMessage(liveEvents, readerDisplayMessage);
 
-    notifyListeners("didRequestReaderDisplayMessage", ret);
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onRequestReaderDisplayMessage(readerDisplayMessage);
+    }
   }
 
   @Override
   public void onRequestReaderInput(
     @NonNull ReaderInputOptions readerInputOptions
   ) {
+    trace.callback("onRequestReaderInput", null);
+
     JSObject ret = new JSObject();
     ret.put("value", readerInputOptions.toString());
     ret.put("isAndroid", true);
 
     notifyListeners("didRequestReaderInput", ret);
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onRequestReaderInput(readerInputOptions);
+    }
   }
 
   @Override
   public void onReportReaderSoftwareUpdateProgress(float v) {
-    JSObject ret = new JSObject();
-    ret.put("progress", v);
+    trace.callback("onReportReaderSoftwareUpdateProgress", (double) v);
 
-    notifyListeners("didReportReaderSoftwareUpdateProgress", ret);
+    if (
+      isObserved("didReportReaderSoftwareUpdateProgress") &&
+      updateScheduler.shouldReportProgress(v)
+    ) {
+      emitUpdateProgress(liveEvents, v);
+    }
   }
 
   @Override
@@ -1045,8 +3002,19 @@ public class StripeTerminal
     ReaderSoftwareUpdate readerSoftwareUpdate,
     TerminalException e
   ) {
+    trace.callback(
+      "onFinishInstallingUpdate",
+      e != null ? e.getErrorCode().toString() : null
+    );
+    long duration = updateScheduler.onInstallFinished(
+      readerSoftwareUpdate,
+      e != null ? e.getErrorMessage() : null
+    );
+
     JSObject ret = new JSObject();
+    ret.put("duration", duration);
     if (e != null) {
+      log.error("installing update failed", e);
       ret.put("error", e.getErrorMessage());
     } else if (readerSoftwareUpdate != null) {
       ret.put("update", TerminalUtils.serializeUpdate(readerSoftwareUpdate));
@@ -1054,17 +3022,28 @@ public class StripeTerminal
       pendingInstallUpdate = null;
     }
     notifyListeners("didFinishInstallingUpdate", ret);
+
+    // the software version and update availability have usually changed
+    emitReaderChanges();
   }
 
   @Override
   public void onReportAvailableUpdate(
     @NonNull ReaderSoftwareUpdate readerSoftwareUpdate
   ) {
+    trace.callback(
+      "onReportAvailableUpdate",
+      readerSoftwareUpdate.getVersion()
+    );
     currentUpdate = readerSoftwareUpdate;
+    boolean scheduled = updateScheduler.schedule(readerSoftwareUpdate);
 
     JSObject ret = new JSObject();
     ret.put("update", TerminalUtils.serializeUpdate(readerSoftwareUpdate));
+    ret.put("scheduled", scheduled);
     notifyListeners("didReportAvailableUpdate", ret);
+
+    emitReaderChanges();
   }
 
   @Override
@@ -1073,12 +3052,18 @@ public class StripeTerminal
     @NonNull BatteryStatus batteryStatus,
     boolean isCharging
   ) {
-    JSObject ret = new JSObject();
-    ret.put("batteryLevel", batteryLevel);
-    ret.put("batteryStatus", batteryStatus.ordinal());
-    ret.put("isCharging", isCharging);
-
-    notifyListeners("didReportBatteryLevel", ret);
+    JSObject battery = new JSObject();
+    battery.put("batteryLevel", (double) batteryLevel);
+    battery.put("batteryStatus", batteryStatus.name());
+    battery.put("isCharging", isCharging);
+    trace.callback("onBatteryLevelUpdate", battery);
+    emitBatteryLevel(liveEvents, batteryLevel, batteryStatus, isCharging);
+
+    JSObject fields = new JSObject();
+    fields.put("batteryLevel", (double) batteryLevel);
+    fields.put("batteryStatus", batteryStatus.ordinal());
+    fields.put("isCharging", isCharging);
+    emitReaderChanges(readerState.update(fields));
   }
 
   @Override
@@ -1086,8 +3071,13 @@ public class StripeTerminal
     @NonNull ReaderSoftwareUpdate readerSoftwareUpdate,
     Cancelable cancelable
   ) {
+    trace.callback(
+      "onStartInstallingUpdate",
+      readerSoftwareUpdate.getVersion()
+    );
     pendingInstallUpdate = cancelable;
     currentUpdate = readerSoftwareUpdate;
+    updateScheduler.onInstallStarted();
 
     JSObject ret = new JSObject();
     ret.put("update", TerminalUtils.serializeUpdate(readerSoftwareUpdate));
@@ -1096,19 +3086,42 @@ public class StripeTerminal
 
   @Override
   public void onReaderReconnectStarted(@NonNull Cancelable cancelReconnect) {
+    trace.callback("onReaderReconnectStarted", null);
     pendingReaderAutoReconnect = cancelReconnect;
+
+    if (lastConnection != null) {
+      for (TerminalEventListener listener : eventListeners) {
+        listener.onReaderReconnectStarted(lastConnection.reader);
+      }
+    }
+
     notifyListeners("didStartReaderReconnect", null);
   }
 
   @Override
   public void onReaderReconnectSucceeded() {
+    trace.callback("onReaderReconnectSucceeded", null);
     pendingReaderAutoReconnect = null;
-    notifyListeners("didSucceedReaderReconnect", null);
+
+    if (lastConnection != null) {
+      for (TerminalEventListener listener : eventListeners) {
+        listener.onReaderReconnectSucceeded(lastConnection.reader);
+      }
+    }
+
+    emitReaderReconnectSucceeded(liveEvents);
   }
 
   @Override
   public void onReaderReconnectFailed(@NonNull Reader reader) {
+    log.debug("reconnect to " + reader.getSerialNumber() + " failed");
+    trace.callback("onReaderReconnectFailed", null);
     pendingReaderAutoReconnect = null;
+
+    for (TerminalEventListener listener : eventListeners) {
+      listener.onReaderReconnectFailed(reader);
+    }
+
     notifyListeners("didFailReaderReconnect", null);
   }
 }
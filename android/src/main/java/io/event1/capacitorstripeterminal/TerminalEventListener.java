@@ -0,0 +1,44 @@
+package io.event1.capacitorstripeterminal;
+
+import androidx.annotation.NonNull;
+import com.stripe.stripeterminal.external.models.ConnectionStatus;
+import com.stripe.stripeterminal.external.models.PaymentStatus;
+import com.stripe.stripeterminal.external.models.Reader;
+import com.stripe.stripeterminal.external.models.ReaderDisplayMessage;
+import com.stripe.stripeterminal.external.models.ReaderEvent;
+import com.stripe.stripeterminal.external.models.ReaderInputOptions;
+
+/**
+ * Receives Terminal events natively, without going through the JS bridge.
+ * Register one with `StripeTerminal.addTerminalEventListener`. Every method has
+ * an empty default, so only the events of interest need to be overridden.
+ *
+ * Events are delivered on the thread the SDK calls back on.
+ */
+public interface TerminalEventListener {
+  default void onConnectionStatusChange(@NonNull ConnectionStatus status) {}
+
+  default void onPaymentStatusChange(@NonNull PaymentStatus status) {}
+
+  default void onReaderEvent(@NonNull ReaderEvent event) {}
+
+  default void onRequestReaderDisplayMessage(
+    @NonNull ReaderDisplayMessage message
+  ) {}
+
+  default void onRequestReaderInput(@NonNull ReaderInputOptions options) {}
+
+  default void onReaderConnected(@NonNull Reader reader) {}
+
+  default void onUnexpectedReaderDisconnect(@NonNull Reader reader) {}
+
+  /**
+   * Called when the SDK starts reconnecting a Bluetooth reader, or the plugin
+   * starts reconnecting another reader under `setAutoReconnectPolicy`.
+   */
+  default void onReaderReconnectStarted(@NonNull Reader reader) {}
+
+  default void onReaderReconnectSucceeded(@NonNull Reader reader) {}
+
+  default void onReaderReconnectFailed(@NonNull Reader reader) {}
+}
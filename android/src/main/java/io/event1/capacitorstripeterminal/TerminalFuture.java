@@ -0,0 +1,138 @@
+package io.event1.capacitorstripeterminal;
+
+import androidx.annotation.NonNull;
+import com.stripe.stripeterminal.external.callable.Callback;
+import com.stripe.stripeterminal.external.callable.Cancelable;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of an asynchronous Terminal operation. Completions registered with
+ * `whenComplete` run once the SDK calls back, or immediately if it already has,
+ * so operations can be chained with `thenCompose` or started side by side.
+ *
+ * `java.util.concurrent.CompletableFuture` would be the obvious choice, but it
+ * is only available from API 24 and the plugin supports API 22.
+ */
+class TerminalFuture<T> {
+
+  interface Completion<V> {
+    /**
+     * Called with the value on success, or with the error on failure.
+     */
+    void complete(V value, TerminalException error);
+  }
+
+  interface Composer<V, R> {
+    TerminalFuture<R> apply(V value);
+  }
+
+  private boolean done = false;
+  private T value = null;
+  private TerminalException error = null;
+  private Cancelable cancelable = null;
+  private final List<Completion<T>> completions = new ArrayList<>();
+
+  static <V> TerminalFuture<V> completed(V value) {
+    TerminalFuture<V> future = new TerminalFuture<>();
+    future.complete(value);
+    return future;
+  }
+
+  void complete(T value) {
+    settle(value, null);
+  }
+
+  void fail(@NonNull TerminalException error) {
+    settle(null, error);
+  }
+
+  private void settle(T value, TerminalException error) {
+    List<Completion<T>> pending;
+
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+
+      done = true;
+      this.value = value;
+      this.error = error;
+      pending = new ArrayList<>(completions);
+      completions.clear();
+    }
+
+    for (Completion<T> completion : pending) {
+      completion.complete(value, error);
+    }
+  }
+
+  TerminalFuture<T> whenComplete(Completion<T> completion) {
+    synchronized (this) {
+      if (!done) {
+        completions.add(completion);
+        return this;
+      }
+    }
+
+    completion.complete(value, error);
+    return this;
+  }
+
+  /**
+   * Starts the next operation with the value of this one. A failure skips the
+   * next operation and is passed straight to the returned future.
+   */
+  <R> TerminalFuture<R> thenCompose(final Composer<T, R> composer) {
+    final TerminalFuture<R> next = new TerminalFuture<>();
+
+    whenComplete(
+      (value, error) -> {
+        if (error != null) {
+          next.fail(error);
+          return;
+        }
+
+        composer
+          .apply(value)
+          .whenComplete(
+            (result, resultError) -> {
+              if (resultError != null) {
+                next.fail(resultError);
+              } else {
+                next.complete(result);
+              }
+            }
+          );
+      }
+    );
+
+    return next;
+  }
+
+  synchronized boolean isDone() {
+    return done;
+  }
+
+  synchronized void setCancelable(Cancelable cancelable) {
+    this.cancelable = cancelable;
+  }
+
+  /**
+   * Cancels the SDK operation if it can be canceled and is still running.
+   */
+  void cancel(@NonNull Callback callback) {
+    Cancelable current;
+
+    synchronized (this) {
+      current = cancelable;
+    }
+
+    if (current != null && !current.isCompleted()) {
+      current.cancel(callback);
+    } else {
+      callback.onSuccess();
+    }
+  }
+}
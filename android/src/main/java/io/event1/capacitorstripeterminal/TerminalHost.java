@@ -0,0 +1,235 @@
+package io.event1.capacitorstripeterminal;
+
+import androidx.annotation.NonNull;
+import com.stripe.stripeterminal.external.callable.BluetoothReaderListener;
+import com.stripe.stripeterminal.external.callable.BluetoothReaderReconnectionListener;
+import com.stripe.stripeterminal.external.callable.Cancelable;
+import com.stripe.stripeterminal.external.callable.ConnectionTokenCallback;
+import com.stripe.stripeterminal.external.callable.ConnectionTokenProvider;
+import com.stripe.stripeterminal.external.callable.HandoffReaderListener;
+import com.stripe.stripeterminal.external.callable.TerminalListener;
+import com.stripe.stripeterminal.external.callable.UsbReaderListener;
+import com.stripe.stripeterminal.external.models.BatteryStatus;
+import com.stripe.stripeterminal.external.models.ConnectionStatus;
+import com.stripe.stripeterminal.external.models.PaymentStatus;
+import com.stripe.stripeterminal.external.models.Reader;
+import com.stripe.stripeterminal.external.models.ReaderDisplayMessage;
+import com.stripe.stripeterminal.external.models.ReaderEvent;
+import com.stripe.stripeterminal.external.models.ReaderInputOptions;
+import com.stripe.stripeterminal.external.models.ReaderSoftwareUpdate;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.List;
+
+/**
+ * The listener registered with the SDK for the life of the process. The
+ * Terminal singleton and a reader connection outlive the Activity, and with it
+ * the plugin instance that set them up, so callbacks are forwarded to whichever
+ * plugin instance is attached now. Callbacks that arrive while no plugin is
+ * attached are dropped, except for connection token requests, which wait for
+ * the next one. How the reader was connected and the last discovered readers
+ * are handed over too, so the next plugin instance can keep managing the
+ * connection.
+ */
+final class TerminalHost
+  implements
+    ConnectionTokenProvider,
+    TerminalListener,
+    UsbReaderListener,
+    HandoffReaderListener,
+    BluetoothReaderListener,
+    BluetoothReaderReconnectionListener {
+
+  static final TerminalHost INSTANCE = new TerminalHost();
+
+  private volatile StripeTerminal plugin = null;
+  private ConnectionTokenCallback pendingTokenCallback = null;
+  private ReaderConnection connection = null;
+  private List<? extends Reader> discoveredReaders = null;
+
+  private TerminalHost() {}
+
+  void attach(StripeTerminal plugin) {
+    ConnectionTokenCallback tokenCallback;
+    ReaderConnection lastConnection;
+    List<? extends Reader> lastDiscoveredReaders;
+
+    synchronized (this) {
+      this.plugin = plugin;
+      tokenCallback = pendingTokenCallback;
+      pendingTokenCallback = null;
+      lastConnection = connection;
+      lastDiscoveredReaders = discoveredReaders;
+      connection = null;
+      discoveredReaders = null;
+    }
+
+    plugin.restoreConnection(lastConnection, lastDiscoveredReaders);
+
+    if (tokenCallback != null) {
+      plugin.fetchConnectionToken(tokenCallback);
+    }
+  }
+
+  synchronized void detach(StripeTerminal plugin) {
+    if (this.plugin == plugin) {
+      this.plugin = null;
+      connection = plugin.lastConnection;
+      discoveredReaders = plugin.discoveredReadersList;
+    }
+  }
+
+  @Override
+  public void fetchConnectionToken(
+    @NonNull ConnectionTokenCallback connectionTokenCallback
+  ) {
+    StripeTerminal target;
+
+    synchronized (this) {
+      target = plugin;
+      if (target == null) {
+        pendingTokenCallback = connectionTokenCallback;
+        return;
+      }
+    }
+
+    target.fetchConnectionToken(connectionTokenCallback);
+  }
+
+  @Override
+  public void onConnectionStatusChange(
+    @NonNull ConnectionStatus connectionStatus
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onConnectionStatusChange(connectionStatus);
+    }
+  }
+
+  @Override
+  public void onPaymentStatusChange(@NonNull PaymentStatus paymentStatus) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onPaymentStatusChange(paymentStatus);
+    }
+  }
+
+  @Override
+  public void onUnexpectedReaderDisconnect(@NonNull Reader reader) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onUnexpectedReaderDisconnect(reader);
+    }
+  }
+
+  @Override
+  public void onReportLowBatteryWarning() {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReportLowBatteryWarning();
+    }
+  }
+
+  @Override
+  public void onReportReaderEvent(@NonNull ReaderEvent readerEvent) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReportReaderEvent(readerEvent);
+    }
+  }
+
+  @Override
+  public void onRequestReaderDisplayMessage(
+    @NonNull ReaderDisplayMessage readerDisplayMessage
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onRequestReaderDisplayMessage(readerDisplayMessage);
+    }
+  }
+
+  @Override
+  public void onRequestReaderInput(
+    @NonNull ReaderInputOptions readerInputOptions
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onRequestReaderInput(readerInputOptions);
+    }
+  }
+
+  @Override
+  public void onReportReaderSoftwareUpdateProgress(float v) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReportReaderSoftwareUpdateProgress(v);
+    }
+  }
+
+  @Override
+  public void onFinishInstallingUpdate(
+    ReaderSoftwareUpdate readerSoftwareUpdate,
+    TerminalException e
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onFinishInstallingUpdate(readerSoftwareUpdate, e);
+    }
+  }
+
+  @Override
+  public void onReportAvailableUpdate(
+    @NonNull ReaderSoftwareUpdate readerSoftwareUpdate
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReportAvailableUpdate(readerSoftwareUpdate);
+    }
+  }
+
+  @Override
+  public void onBatteryLevelUpdate(
+    float batteryLevel,
+    @NonNull BatteryStatus batteryStatus,
+    boolean isCharging
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onBatteryLevelUpdate(batteryLevel, batteryStatus, isCharging);
+    }
+  }
+
+  @Override
+  public void onStartInstallingUpdate(
+    @NonNull ReaderSoftwareUpdate readerSoftwareUpdate,
+    Cancelable cancelable
+  ) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onStartInstallingUpdate(readerSoftwareUpdate, cancelable);
+    }
+  }
+
+  @Override
+  public void onReaderReconnectStarted(@NonNull Cancelable cancelReconnect) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReaderReconnectStarted(cancelReconnect);
+    }
+  }
+
+  @Override
+  public void onReaderReconnectSucceeded() {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReaderReconnectSucceeded();
+    }
+  }
+
+  @Override
+  public void onReaderReconnectFailed(@NonNull Reader reader) {
+    StripeTerminal target = plugin;
+    if (target != null) {
+      target.onReaderReconnectFailed(reader);
+    }
+  }
+}
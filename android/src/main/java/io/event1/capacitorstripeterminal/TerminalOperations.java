@@ -0,0 +1,266 @@
+package io.event1.capacitorstripeterminal;
+
+import androidx.annotation.NonNull;
+import com.stripe.stripeterminal.Terminal;
+import com.stripe.stripeterminal.external.callable.BluetoothReaderListener;
+import com.stripe.stripeterminal.external.callable.Callback;
+import com.stripe.stripeterminal.external.callable.HandoffReaderListener;
+import com.stripe.stripeterminal.external.callable.LocationListCallback;
+import com.stripe.stripeterminal.external.callable.PaymentIntentCallback;
+import com.stripe.stripeterminal.external.callable.ReaderCallback;
+import com.stripe.stripeterminal.external.callable.RefundCallback;
+import com.stripe.stripeterminal.external.callable.UsbReaderListener;
+import com.stripe.stripeterminal.external.models.Cart;
+import com.stripe.stripeterminal.external.models.CollectConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.BluetoothConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.HandoffConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.InternetConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.LocalMobileConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ConnectionConfiguration.UsbConnectionConfiguration;
+import com.stripe.stripeterminal.external.models.ListLocationsParameters;
+import com.stripe.stripeterminal.external.models.Location;
+import com.stripe.stripeterminal.external.models.PaymentIntent;
+import com.stripe.stripeterminal.external.models.Reader;
+import com.stripe.stripeterminal.external.models.Refund;
+import com.stripe.stripeterminal.external.models.RefundParameters;
+import com.stripe.stripeterminal.external.models.TerminalException;
+import java.util.List;
+
+/**
+ * Future-based versions of the callback-style Terminal operations. The plugin
+ * methods are built on these so native flows can chain or overlap operations
+ * without nesting callbacks.
+ */
+class TerminalOperations {
+
+  static class LocationPage {
+
+    final List<Location> locations;
+    final boolean hasMore;
+
+    LocationPage(List<Location> locations, boolean hasMore) {
+      this.locations = locations;
+      this.hasMore = hasMore;
+    }
+  }
+
+  private static ReaderCallback readerCallback(
+    final TerminalFuture<Reader> future
+  ) {
+    return new ReaderCallback() {
+      @Override
+      public void onSuccess(@NonNull Reader reader) {
+        future.complete(reader);
+      }
+
+      @Override
+      public void onFailure(@NonNull TerminalException e) {
+        future.fail(e);
+      }
+    };
+  }
+
+  private static PaymentIntentCallback paymentIntentCallback(
+    final TerminalFuture<PaymentIntent> future
+  ) {
+    return new PaymentIntentCallback() {
+      @Override
+      public void onSuccess(@NonNull PaymentIntent paymentIntent) {
+        future.complete(paymentIntent);
+      }
+
+      @Override
+      public void onFailure(@NonNull TerminalException e) {
+        future.fail(e);
+      }
+    };
+  }
+
+  private static Callback callback(final TerminalFuture<Void> future) {
+    return new Callback() {
+      @Override
+      public void onSuccess() {
+        future.complete(null);
+      }
+
+      @Override
+      public void onFailure(@NonNull TerminalException e) {
+        future.fail(e);
+      }
+    };
+  }
+
+  static TerminalFuture<Reader> connectInternetReader(
+    Reader reader,
+    InternetConnectionConfiguration config
+  ) {
+    TerminalFuture<Reader> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .connectInternetReader(reader, config, readerCallback(future));
+    return future;
+  }
+
+  static TerminalFuture<Reader> connectBluetoothReader(
+    Reader reader,
+    BluetoothConnectionConfiguration config,
+    BluetoothReaderListener listener
+  ) {
+    TerminalFuture<Reader> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .connectBluetoothReader(reader, config, listener, readerCallback(future));
+    return future;
+  }
+
+  static TerminalFuture<Reader> connectUsbReader(
+    Reader reader,
+    UsbConnectionConfiguration config,
+    UsbReaderListener listener
+  ) {
+    TerminalFuture<Reader> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .connectUsbReader(reader, config, listener, readerCallback(future));
+    return future;
+  }
+
+  static TerminalFuture<Reader> connectLocalMobileReader(
+    Reader reader,
+    LocalMobileConnectionConfiguration config
+  ) {
+    TerminalFuture<Reader> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .connectLocalMobileReader(reader, config, readerCallback(future));
+    return future;
+  }
+
+  static TerminalFuture<Reader> connectHandoffReader(
+    Reader reader,
+    HandoffConnectionConfiguration config,
+    HandoffReaderListener listener
+  ) {
+    TerminalFuture<Reader> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .connectHandoffReader(reader, config, listener, readerCallback(future));
+    return future;
+  }
+
+  static TerminalFuture<Void> disconnectReader() {
+    TerminalFuture<Void> future = new TerminalFuture<>();
+    Terminal.getInstance().disconnectReader(callback(future));
+    return future;
+  }
+
+  static TerminalFuture<PaymentIntent> retrievePaymentIntent(
+    String clientSecret
+  ) {
+    TerminalFuture<PaymentIntent> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .retrievePaymentIntent(clientSecret, paymentIntentCallback(future));
+    return future;
+  }
+
+  /**
+   * The returned future can be canceled with `TerminalFuture.cancel`.
+   */
+  static TerminalFuture<PaymentIntent> collectPaymentMethod(
+    PaymentIntent paymentIntent,
+    CollectConfiguration config
+  ) {
+    TerminalFuture<PaymentIntent> future = new TerminalFuture<>();
+    future.setCancelable(
+      Terminal
+        .getInstance()
+        .collectPaymentMethod(
+          paymentIntent,
+          paymentIntentCallback(future),
+          config
+        )
+    );
+    return future;
+  }
+
+  static TerminalFuture<PaymentIntent> processPayment(
+    PaymentIntent paymentIntent
+  ) {
+    TerminalFuture<PaymentIntent> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .processPayment(paymentIntent, paymentIntentCallback(future));
+    return future;
+  }
+
+  /**
+   * The returned future can be canceled with `TerminalFuture.cancel`.
+   */
+  static TerminalFuture<Void> collectRefundPaymentMethod(
+    RefundParameters params
+  ) {
+    TerminalFuture<Void> future = new TerminalFuture<>();
+    future.setCancelable(
+      Terminal
+        .getInstance()
+        .collectRefundPaymentMethod(params, callback(future))
+    );
+    return future;
+  }
+
+  static TerminalFuture<Refund> processRefund() {
+    final TerminalFuture<Refund> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .processRefund(
+        new RefundCallback() {
+          @Override
+          public void onSuccess(@NonNull Refund refund) {
+            future.complete(refund);
+          }
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {
+            future.fail(e);
+          }
+        }
+      );
+    return future;
+  }
+
+  static TerminalFuture<LocationPage> listLocations(
+    ListLocationsParameters params
+  ) {
+    final TerminalFuture<LocationPage> future = new TerminalFuture<>();
+    Terminal
+      .getInstance()
+      .listLocations(
+        params,
+        new LocationListCallback() {
+          @Override
+          public void onSuccess(@NonNull List<Location> list, boolean hasMore) {
+            future.complete(new LocationPage(list, hasMore));
+          }
+
+          @Override
+          public void onFailure(@NonNull TerminalException e) {
+            future.fail(e);
+          }
+        }
+      );
+    return future;
+  }
+
+  static TerminalFuture<Void> setReaderDisplay(Cart cart) {
+    TerminalFuture<Void> future = new TerminalFuture<>();
+    Terminal.getInstance().setReaderDisplay(cart, callback(future));
+    return future;
+  }
+
+  static TerminalFuture<Void> clearReaderDisplay() {
+    TerminalFuture<Void> future = new TerminalFuture<>();
+    Terminal.getInstance().clearReaderDisplay(callback(future));
+    return future;
+  }
+}
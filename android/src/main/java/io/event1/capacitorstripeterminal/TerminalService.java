@@ -0,0 +1,112 @@
+package io.event1.capacitorstripeterminal;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.IBinder;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Foreground service that keeps the process, and with it the Terminal and the
+ * reader connection, alive while the Activity is destroyed and recreated. The
+ * Terminal itself is bound to the application context and reports to
+ * `TerminalHost`, which the new plugin instance attaches to when it loads.
+ */
+public class TerminalService extends Service {
+
+  private static final String CHANNEL_ID = "stripe_terminal";
+  private static final int NOTIFICATION_ID = 4470;
+  private static final String EXTRA_TITLE = "title";
+  private static final String EXTRA_TEXT = "text";
+
+  private static volatile boolean running = false;
+
+  static void start(Context context, String title, String text) {
+    Intent intent = new Intent(context, TerminalService.class);
+    intent.putExtra(EXTRA_TITLE, title);
+    intent.putExtra(EXTRA_TEXT, text);
+    ContextCompat.startForegroundService(context, intent);
+  }
+
+  static void stop(Context context) {
+    context.stopService(new Intent(context, TerminalService.class));
+  }
+
+  static boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public void onCreate() {
+    super.onCreate();
+    running = true;
+  }
+
+  @Override
+  public int onStartCommand(Intent intent, int flags, int startId) {
+    String title = intent != null ? intent.getStringExtra(EXTRA_TITLE) : null;
+    String text = intent != null ? intent.getStringExtra(EXTRA_TEXT) : null;
+
+    startForeground(NOTIFICATION_ID, buildNotification(title, text));
+
+    // the Terminal doesn't survive the process, so there is nothing to restart
+    return START_NOT_STICKY;
+  }
+
+  @Override
+  public void onDestroy() {
+    running = false;
+    super.onDestroy();
+  }
+
+  @Override
+  public IBinder onBind(Intent intent) {
+    return null;
+  }
+
+  private Notification buildNotification(String title, String text) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      NotificationChannel channel = new NotificationChannel(
+        CHANNEL_ID,
+        "Card reader",
+        NotificationManager.IMPORTANCE_LOW
+      );
+      getSystemService(NotificationManager.class)
+        .createNotificationChannel(channel);
+    }
+
+    NotificationCompat.Builder builder = new NotificationCompat.Builder(
+      this,
+      CHANNEL_ID
+    )
+      .setSmallIcon(getApplicationInfo().icon)
+      .setContentTitle(title != null ? title : "Card reader connected")
+      .setOngoing(true)
+      .setPriority(NotificationCompat.PRIORITY_LOW);
+
+    if (text != null) {
+      builder.setContentText(text);
+    }
+
+    // tapping the notification brings the app back
+    Intent launch = getPackageManager()
+      .getLaunchIntentForPackage(getPackageName());
+    if (launch != null) {
+      int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+        flags |= PendingIntent.FLAG_IMMUTABLE;
+      }
+      builder.setContentIntent(
+        PendingIntent.getActivity(this, 0, launch, flags)
+      );
+    }
+
+    return builder.build();
+  }
+}
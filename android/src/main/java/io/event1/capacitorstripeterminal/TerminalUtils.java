@@ -7,6 +7,7 @@ import com.stripe.stripeterminal.external.models.Address;
 import com.stripe.stripeterminal.external.models.AmountDetails;
 import com.stripe.stripeterminal.external.models.AmountDetailsJsonAdapter;
 import com.stripe.stripeterminal.external.models.Charge;
+import com.stripe.stripeterminal.external.models.BatteryStatus;
 import com.stripe.stripeterminal.external.models.ChargeJsonAdapter;
 import com.stripe.stripeterminal.external.models.ConnectionStatus;
 import com.stripe.stripeterminal.external.models.DeviceType;
@@ -19,9 +20,12 @@ import com.stripe.stripeterminal.external.models.PaymentMethodJsonAdapter;
 import com.stripe.stripeterminal.external.models.PaymentStatus;
 import com.stripe.stripeterminal.external.models.Reader;
 import com.stripe.stripeterminal.external.models.ReaderDisplayMessage;
+import com.stripe.stripeterminal.external.models.ReaderEvent;
 import com.stripe.stripeterminal.external.models.ReaderInputOptions;
 import com.stripe.stripeterminal.external.models.ReaderSoftwareUpdate;
+import com.stripe.stripeterminal.external.models.Refund;
 import com.stripe.stripeterminal.external.models.SimulatorConfiguration;
+import com.stripe.stripeterminal.log.LogLevel;
 
 public class TerminalUtils {
 
@@ -91,6 +95,21 @@ public class TerminalUtils {
     return object;
   }
 
+  public static Object serializeRefund(Refund refund) {
+    if (refund == null) {
+      return JSObject.NULL;
+    }
+
+    JSObject object = new JSObject();
+
+    object.put("stripeId", refund.getId());
+    object.put("amount", refund.getAmount());
+    object.put("currency", refund.getCurrency());
+    object.put("status", refund.getStatus());
+
+    return object;
+  }
+
   public static Object serializePaymentIntent(
     PaymentIntent paymentIntent,
     String currency
@@ -233,6 +252,52 @@ public class TerminalUtils {
     return object;
   }
 
+  public static JSObject serializeConnectionStatus(ConnectionStatus status) {
+    JSObject object = new JSObject();
+    object.put("status", translateConnectionStatusToJS(status.ordinal()));
+    object.put("isAndroid", true);
+    return object;
+  }
+
+  public static JSObject serializePaymentStatus(PaymentStatus status) {
+    JSObject object = new JSObject();
+    object.put("status", status.ordinal());
+    return object;
+  }
+
+  public static JSObject serializeReaderEvent(ReaderEvent event) {
+    JSObject object = new JSObject();
+    object.put("event", event.ordinal());
+    return object;
+  }
+
+  public static JSObject serializeReaderDisplayMessage(
+    ReaderDisplayMessage message
+  ) {
+    JSObject object = new JSObject();
+    object.put("value", translateReaderDisplayMessageToJS(message.ordinal()));
+    object.put("text", message.toString());
+    return object;
+  }
+
+  public static JSObject serializeUpdateProgress(float progress) {
+    JSObject object = new JSObject();
+    object.put("progress", progress);
+    return object;
+  }
+
+  public static JSObject serializeBatteryLevel(
+    float batteryLevel,
+    BatteryStatus batteryStatus,
+    boolean isCharging
+  ) {
+    JSObject object = new JSObject();
+    object.put("batteryLevel", batteryLevel);
+    object.put("batteryStatus", batteryStatus.ordinal());
+    object.put("isCharging", isCharging);
+    return object;
+  }
+
   public static DiscoveryMethod translateDiscoveryMethod(Integer method) {
     if (method == 0) {
       return DiscoveryMethod.BLUETOOTH_SCAN;
@@ -253,6 +318,15 @@ public class TerminalUtils {
     }
   }
 
+  // translate the JS log level name to the android log level enum
+  public static LogLevel translateLogLevel(String level) {
+    try {
+      return LogLevel.valueOf(level.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return LogLevel.NONE;
+    }
+  }
+
   // translate the android device type enum to the JS device type enum
   public static Integer translateDeviceTypeToJS(int type) {
     if (type == DeviceType.CHIPPER_2X.ordinal()) {
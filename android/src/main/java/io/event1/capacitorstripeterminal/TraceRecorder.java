@@ -0,0 +1,184 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Records a timestamped trace of the SDK callbacks the plugin receives, the
+ * results of SDK operations, the plugin calls waiting on them and the events
+ * sent to JS. `TraceReplayer` can feed a saved trace back into the plugin with
+ * the original timing.
+ */
+class TraceRecorder {
+
+  static final String CALL = "call";
+  static final String CALLBACK = "callback";
+  static final String RESULT = "result";
+  static final String EVENT = "event";
+
+  static final String DIRECTORY = "stripe-terminal-traces";
+  static final int DEFAULT_MAX_ENTRIES = 10000;
+
+  // traces end up in the cache directory and may be shared, so secrets passed
+  // to plugin calls are never written out
+  private static final Set<String> REDACTED_KEYS = new HashSet<>(
+    Arrays.asList("clientSecret", "token")
+  );
+  private static final String REDACTED = "[redacted]";
+
+  private volatile JSArray entries = null;
+  private long startedAt = 0;
+  private int maxEntries = DEFAULT_MAX_ENTRIES;
+  private int dropped = 0;
+
+  synchronized boolean isRecording() {
+    return entries != null;
+  }
+
+  synchronized void start(int maxEntries) {
+    this.maxEntries = maxEntries;
+    entries = new JSArray();
+    startedAt = SystemClock.elapsedRealtime();
+    dropped = 0;
+  }
+
+  /**
+   * Adds an entry if a trace is being recorded. `value` holds the arguments of
+   * a callback that can be rebuilt on replay, such as an enum name, and `data`
+   * the serialized form of anything else.
+   */
+  void record(String kind, String name, Object value, JSObject data) {
+    // checked without the lock first since this runs on every callback
+    if (entries == null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (entries == null) {
+        return;
+      }
+
+      if (entries.length() >= maxEntries) {
+        dropped++;
+        return;
+      }
+
+      JSObject entry = new JSObject();
+      entry.put("t", SystemClock.elapsedRealtime() - startedAt);
+      entry.put("kind", kind);
+      entry.put("name", name);
+      if (value != null) {
+        entry.put("value", value);
+      }
+      if (data != null) {
+        entry.put("data", redact(data));
+      }
+      entries.put(entry);
+    }
+  }
+
+  /**
+   * Returns a copy of the object with the values of secret keys replaced, at
+   * any depth.
+   */
+  static JSONObject redact(JSONObject object) {
+    JSONObject copy = new JSONObject();
+    Iterator<String> keys = object.keys();
+
+    while (keys.hasNext()) {
+      String key = keys.next();
+
+      try {
+        copy.put(
+          key,
+          REDACTED_KEYS.contains(key) ? REDACTED : redactValue(object.opt(key))
+        );
+      } catch (JSONException e) {
+        // keys come from a valid object, so this can't happen
+      }
+    }
+
+    return copy;
+  }
+
+  private static Object redactValue(Object value) {
+    if (value instanceof JSONObject) {
+      return redact((JSONObject) value);
+    }
+
+    if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      JSONArray copy = new JSONArray();
+      for (int i = 0; i < array.length(); i++) {
+        copy.put(redactValue(array.opt(i)));
+      }
+      return copy;
+    }
+
+    return value;
+  }
+
+  void callback(String name, Object value) {
+    record(CALLBACK, name, value, null);
+  }
+
+  /**
+   * Stops recording and writes the trace as JSON to a file in `directory`.
+   */
+  JSObject stop(File directory) throws IOException {
+    JSObject trace = new JSObject();
+    long recordedAt = System.currentTimeMillis();
+    JSArray recorded;
+    int droppedEntries;
+
+    synchronized (this) {
+      if (entries == null) {
+        throw new IOException("No trace is being recorded");
+      }
+
+      recorded = entries;
+      droppedEntries = dropped;
+      trace.put("duration", SystemClock.elapsedRealtime() - startedAt);
+      entries = null;
+    }
+
+    trace.put("recordedAt", recordedAt);
+    trace.put("dropped", droppedEntries);
+    trace.put("entries", recorded);
+
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Could not create " + directory);
+    }
+
+    File file = new File(directory, "trace-" + recordedAt + ".json");
+
+    try (
+      Writer writer = new OutputStreamWriter(
+        new FileOutputStream(file),
+        StandardCharsets.UTF_8
+      )
+    ) {
+      writer.write(trace.toString());
+    }
+
+    JSObject ret = new JSObject();
+    ret.put("path", file.getAbsolutePath());
+    ret.put("entries", recorded.length());
+    ret.put("dropped", droppedEntries);
+    return ret;
+  }
+}
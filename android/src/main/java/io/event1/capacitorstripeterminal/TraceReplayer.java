@@ -0,0 +1,226 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.BatteryStatus;
+import com.stripe.stripeterminal.external.models.ConnectionStatus;
+import com.stripe.stripeterminal.external.models.PaymentStatus;
+import com.stripe.stripeterminal.external.models.ReaderDisplayMessage;
+import com.stripe.stripeterminal.external.models.ReaderEvent;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Feeds a trace recorded by `TraceRecorder` into a `Target` at the original
+ * speed or faster, and reports how long the target spent handling each entry
+ * and how far behind schedule it fell.
+ *
+ * Callbacks whose arguments can be rebuilt from the trace (status enums,
+ * progress and battery values) are passed to the target. Callbacks carrying
+ * SDK objects such as readers or payment intents can't be rebuilt, and the
+ * recorded events, plugin calls and SDK results are produced by the replayed
+ * callbacks or have no SDK behind the replay to answer them, so they are only
+ * counted as skipped.
+ */
+class TraceReplayer {
+
+  interface Done {
+    void onFinished(JSObject report);
+  }
+
+  /**
+   * Receives the replayed callbacks. The plugin's target runs the same event
+   * handlers as its SDK listener methods, but nothing it emits reaches JS, and
+   * a stub can stand in for it elsewhere.
+   */
+  interface Target {
+    void onConnectionStatusChange(ConnectionStatus status);
+
+    void onPaymentStatusChange(PaymentStatus status);
+
+    void onReportReaderEvent(ReaderEvent event);
+
+    void onRequestReaderDisplayMessage(ReaderDisplayMessage message);
+
+    void onReportReaderSoftwareUpdateProgress(float progress);
+
+    void onReportLowBatteryWarning();
+
+    void onBatteryLevelUpdate(
+      float batteryLevel,
+      BatteryStatus batteryStatus,
+      boolean isCharging
+    );
+
+    void onReaderReconnectSucceeded();
+  }
+
+  private static class Timing {
+
+    long count = 0;
+    long total = 0;
+    long max = 0;
+
+    void add(long nanos) {
+      count++;
+      total += nanos;
+      max = Math.max(max, nanos);
+    }
+
+    JSObject serialize() {
+      JSObject ret = new JSObject();
+      ret.put("count", count);
+      ret.put("total", total / 1e6);
+      ret.put("max", max / 1e6);
+      ret.put("avg", count > 0 ? total / 1e6 / count : 0);
+      return ret;
+    }
+  }
+
+  private final Target target;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final Timing overhead = new Timing();
+  private final Timing lag = new Timing();
+  private final Map<String, Timing> byName = new HashMap<>();
+  private int skipped = 0;
+
+  TraceReplayer(Target target) {
+    this.target = target;
+  }
+
+  /**
+   * Replays the entries on the main thread. A speed of 2 replays twice as fast
+   * as recorded, 0 replays every entry right after the previous one.
+   */
+  void replay(final JSONArray entries, final double speed, final Done done) {
+    final long startedAt = SystemClock.uptimeMillis();
+
+    for (int i = 0; i < entries.length(); i++) {
+      final JSONObject entry = entries.optJSONObject(i);
+      if (entry == null) {
+        continue;
+      }
+
+      final long plannedAt = speed > 0
+        ? startedAt + (long) (entry.optLong("t") / speed)
+        : startedAt;
+
+      handler.postAtTime(() -> run(entry, plannedAt), plannedAt);
+    }
+
+    // posted last so it runs after every entry
+    JSONObject last = entries.optJSONObject(entries.length() - 1);
+    long duration = last != null ? last.optLong("t") : 0;
+    final long endAt = speed > 0
+      ? startedAt + (long) (duration / speed)
+      : startedAt;
+
+    handler.postAtTime(
+      () -> {
+        JSObject report = new JSObject();
+        report.put("entries", entries.length());
+        report.put("replayed", overhead.count);
+        report.put("skipped", skipped);
+        report.put("speed", speed);
+        report.put("duration", SystemClock.uptimeMillis() - startedAt);
+        report.put("overhead", overhead.serialize());
+        report.put("lag", lag.serialize());
+
+        JSObject names = new JSObject();
+        for (Map.Entry<String, Timing> timing : byName.entrySet()) {
+          names.put(timing.getKey(), timing.getValue().serialize());
+        }
+        report.put("byName", names);
+
+        done.onFinished(report);
+      },
+      endAt
+    );
+  }
+
+  private void run(JSONObject entry, long plannedAt) {
+    lag.add((SystemClock.uptimeMillis() - plannedAt) * 1000000);
+
+    String kind = entry.optString("kind");
+    String name = entry.optString("name");
+
+    long start = System.nanoTime();
+    boolean replayed;
+
+    try {
+      replayed =
+        TraceRecorder.CALLBACK.equals(kind) && dispatchCallback(name, entry);
+    } catch (JSONException | IllegalArgumentException e) {
+      replayed = false;
+    }
+
+    long elapsed = System.nanoTime() - start;
+
+    if (!replayed) {
+      skipped++;
+      return;
+    }
+
+    overhead.add(elapsed);
+
+    Timing timing = byName.get(name);
+    if (timing == null) {
+      timing = new Timing();
+      byName.put(name, timing);
+    }
+    timing.add(elapsed);
+  }
+
+  private boolean dispatchCallback(String name, JSONObject entry)
+    throws JSONException {
+    switch (name) {
+      case "onConnectionStatusChange":
+        target.onConnectionStatusChange(
+          ConnectionStatus.valueOf(entry.getString("value"))
+        );
+        return true;
+      case "onPaymentStatusChange":
+        target.onPaymentStatusChange(
+          PaymentStatus.valueOf(entry.getString("value"))
+        );
+        return true;
+      case "onReportReaderEvent":
+        target.onReportReaderEvent(
+          ReaderEvent.valueOf(entry.getString("value"))
+        );
+        return true;
+      case "onRequestReaderDisplayMessage":
+        target.onRequestReaderDisplayMessage(
+          ReaderDisplayMessage.valueOf(entry.getString("value"))
+        );
+        return true;
+      case "onReportReaderSoftwareUpdateProgress":
+        target.onReportReaderSoftwareUpdateProgress(
+          (float) entry.getDouble("value")
+        );
+        return true;
+      case "onReportLowBatteryWarning":
+        target.onReportLowBatteryWarning();
+        return true;
+      case "onBatteryLevelUpdate":
+        JSONObject battery = entry.getJSONObject("value");
+        target.onBatteryLevelUpdate(
+          (float) battery.getDouble("batteryLevel"),
+          BatteryStatus.valueOf(battery.getString("batteryStatus")),
+          battery.getBoolean("isCharging")
+        );
+        return true;
+      case "onReaderReconnectSucceeded":
+        target.onReaderReconnectSucceeded();
+        return true;
+      default:
+        return false;
+    }
+  }
+}
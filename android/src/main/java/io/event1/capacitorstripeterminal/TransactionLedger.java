@@ -0,0 +1,218 @@
+package io.event1.capacitorstripeterminal;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.stripe.stripeterminal.external.models.PaymentIntent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local record of every payment intent that finished `processPayment`, so the
+ * day's payments can be reconciled without asking the Stripe API. Entries are
+ * indexed by the time they were recorded and by status, which are the two ways
+ * they are queried.
+ */
+class TransactionLedger extends SQLiteOpenHelper {
+
+  private static final String DATABASE_NAME = "StripeTerminalLedger.db";
+  private static final int DATABASE_VERSION = 1;
+  private static final String TABLE = "transactions";
+  private static final String[] COLUMNS = {
+    "id",
+    "amount",
+    "currency",
+    "status",
+    "reader_serial",
+    "created",
+    "recorded_at"
+  };
+
+  static class Query {
+
+    long from = 0;
+    long to = Long.MAX_VALUE;
+    List<Integer> statuses = new ArrayList<>();
+    int limit = 0;
+    int offset = 0;
+  }
+
+  TransactionLedger(Context context) {
+    super(context, DATABASE_NAME, null, DATABASE_VERSION);
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    db.execSQL(
+      "CREATE TABLE " +
+      TABLE +
+      " (" +
+      "id TEXT PRIMARY KEY, " +
+      "amount INTEGER NOT NULL, " +
+      "currency TEXT, " +
+      "status INTEGER NOT NULL, " +
+      "reader_serial TEXT, " +
+      "created INTEGER, " +
+      "recorded_at INTEGER NOT NULL)"
+    );
+    db.execSQL(
+      "CREATE INDEX transactions_recorded_at ON " + TABLE + " (recorded_at)"
+    );
+    db.execSQL(
+      "CREATE INDEX transactions_status ON " +
+      TABLE +
+      " (status, recorded_at)"
+    );
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+
+  /**
+   * Records the intent, replacing an earlier entry for the same intent so a
+   * retried payment is only counted once.
+   */
+  void record(PaymentIntent intent, String readerSerial) {
+    if (intent == null || intent.getId() == null) {
+      return;
+    }
+
+    ContentValues values = new ContentValues();
+    values.put("id", intent.getId());
+    values.put("amount", intent.getAmount());
+    values.put("currency", intent.getCurrency());
+    values.put(
+      "status",
+      TerminalUtils.translatePaymentIntentStatusToJS(
+        intent.getStatus().ordinal()
+      )
+    );
+    values.put("reader_serial", readerSerial);
+    values.put("created", intent.getCreated());
+    values.put("recorded_at", System.currentTimeMillis());
+
+    getWritableDatabase()
+      .insertWithOnConflict(
+        TABLE,
+        null,
+        values,
+        SQLiteDatabase.CONFLICT_REPLACE
+      );
+  }
+
+  /**
+   * Builds the WHERE clause for the query, adding its arguments to `args`.
+   */
+  static String where(Query query, List<String> args) {
+    StringBuilder where = new StringBuilder(
+      "recorded_at >= ? AND recorded_at < ?"
+    );
+    args.add(String.valueOf(query.from));
+    args.add(String.valueOf(query.to));
+
+    if (!query.statuses.isEmpty()) {
+      where.append(" AND status IN (");
+      for (int i = 0; i < query.statuses.size(); i++) {
+        where.append(i == 0 ? "?" : ", ?");
+        args.add(String.valueOf(query.statuses.get(i)));
+      }
+      where.append(")");
+    }
+
+    return where.toString();
+  }
+
+  /**
+   * Builds the LIMIT clause for the query's page, null for every entry.
+   */
+  static String limit(Query query) {
+    return query.limit > 0 ? query.offset + ", " + query.limit : null;
+  }
+
+  JSArray query(Query query) {
+    List<String> args = new ArrayList<>();
+    String where = where(query, args);
+    String limit = limit(query);
+
+    JSArray transactions = new JSArray();
+
+    try (
+      Cursor cursor = getReadableDatabase()
+        .query(
+          TABLE,
+          COLUMNS,
+          where,
+          args.toArray(new String[0]),
+          null,
+          null,
+          "recorded_at ASC",
+          limit
+        )
+    ) {
+      while (cursor.moveToNext()) {
+        JSObject transaction = new JSObject();
+        transaction.put("stripeId", cursor.getString(0));
+        transaction.put("amount", cursor.getLong(1));
+        transaction.put("currency", cursor.getString(2));
+        transaction.put("status", cursor.getInt(3));
+        transaction.put("readerSerialNumber", cursor.getString(4));
+        transaction.put("created", cursor.getLong(5));
+        transaction.put("recordedAt", cursor.getLong(6));
+        transactions.put(transaction);
+      }
+    }
+
+    return transactions;
+  }
+
+  /**
+   * Returns the count and amount of the matching entries per currency and
+   * status, ignoring the query's limit and offset.
+   */
+  JSArray totals(Query query) {
+    List<String> args = new ArrayList<>();
+    String where = where(query, args);
+
+    JSArray totals = new JSArray();
+
+    try (
+      Cursor cursor = getReadableDatabase()
+        .rawQuery(
+          "SELECT currency, status, COUNT(*), SUM(amount) FROM " +
+          TABLE +
+          " WHERE " +
+          where +
+          " GROUP BY currency, status",
+          args.toArray(new String[0])
+        )
+    ) {
+      while (cursor.moveToNext()) {
+        JSObject total = new JSObject();
+        total.put("currency", cursor.getString(0));
+        total.put("status", cursor.getInt(1));
+        total.put("count", cursor.getInt(2));
+        total.put("amount", cursor.getLong(3));
+        totals.put(total);
+      }
+    }
+
+    return totals;
+  }
+
+  /**
+   * Removes entries recorded before the given time and returns how many were
+   * removed.
+   */
+  int clear(long before) {
+    return getWritableDatabase()
+      .delete(
+        TABLE,
+        "recorded_at < ?",
+        new String[] { String.valueOf(before) }
+      );
+  }
+}
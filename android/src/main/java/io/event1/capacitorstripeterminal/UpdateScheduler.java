@@ -0,0 +1,250 @@
+package io.event1.capacitorstripeterminal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import com.stripe.stripeterminal.external.models.ReaderSoftwareUpdate;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Holds optional reader software updates until the lane is idle, either because
+ * there has been no payment activity for a while or because the current time is
+ * inside the configured install window. An update is always installed before its
+ * `requiredAt` deadline.
+ */
+class UpdateScheduler {
+
+  interface Installer {
+    /**
+     * Returns true if the update was handed to the SDK. Implementations should
+     * return false while a payment is in progress.
+     */
+    boolean install(ReaderSoftwareUpdate update);
+  }
+
+  private static final long CHECK_INTERVAL = 60 * 1000;
+  private static final int MAX_HISTORY = 20;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Installer installer;
+
+  boolean enabled = false;
+  // milliseconds without payment activity before the lane counts as idle, 0 disables
+  long idleTime = 0;
+  // minutes of the day, -1 disables the window
+  int windowStart = -1;
+  int windowEnd = -1;
+  // minimum milliseconds between progress events, 0 sends every event
+  long progressInterval = 0;
+
+  private ReaderSoftwareUpdate scheduledUpdate = null;
+  private long lastPaymentActivity = SystemClock.elapsedRealtime();
+
+  private long installStartedAt = 0;
+  private long lastProgressAt = 0;
+  private final Deque<JSObject> history = new ArrayDeque<>();
+
+  private final Runnable check = this::checkScheduledUpdate;
+
+  UpdateScheduler(Installer installer) {
+    this.installer = installer;
+  }
+
+  void configure(PluginCall call) {
+    enabled = call.getBoolean("enabled", true);
+    idleTime = call.getInt("idleMinutes", 0) * 60 * 1000L;
+    windowStart = parseTime(call.getString("windowStart"));
+    windowEnd = parseTime(call.getString("windowEnd"));
+    progressInterval = call.getInt("progressInterval", 0);
+
+    if (!enabled) {
+      cancel();
+    } else if (scheduledUpdate != null) {
+      handler.removeCallbacks(check);
+      handler.post(check);
+    }
+  }
+
+  /**
+   * Parses a "HH:mm" string into minutes of the day.
+   */
+  static int parseTime(String time) {
+    if (time == null) {
+      return -1;
+    }
+
+    String[] parts = time.split(":");
+    try {
+      int hours = Integer.parseInt(parts[0].trim());
+      int minutes = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 0;
+      return (hours * 60 + minutes) % (24 * 60);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Formats minutes of the day as "HH:mm", or returns null for no time.
+   */
+  static Object formatTime(int minutes) {
+    if (minutes < 0) {
+      return JSObject.NULL;
+    }
+
+    return String.format(Locale.US, "%02d:%02d", minutes / 60, minutes % 60);
+  }
+
+  void onPaymentActivity() {
+    lastPaymentActivity = SystemClock.elapsedRealtime();
+  }
+
+  /**
+   * Returns true if the update will be installed later by the scheduler.
+   */
+  boolean schedule(ReaderSoftwareUpdate update) {
+    if (!enabled) {
+      return false;
+    }
+
+    scheduledUpdate = update;
+    handler.removeCallbacks(check);
+    handler.post(check);
+    return true;
+  }
+
+  void cancel() {
+    scheduledUpdate = null;
+    handler.removeCallbacks(check);
+  }
+
+  private void checkScheduledUpdate() {
+    if (scheduledUpdate == null) {
+      return;
+    }
+
+    if (isInstallDue(scheduledUpdate) && installer.install(scheduledUpdate)) {
+      scheduledUpdate = null;
+      return;
+    }
+
+    handler.postDelayed(check, CHECK_INTERVAL);
+  }
+
+  private boolean isInstallDue(ReaderSoftwareUpdate update) {
+    // install on the last check before the deadline at the latest
+    if (
+      update.getRequiredAt() != null &&
+      System.currentTimeMillis() + CHECK_INTERVAL >=
+      update.getRequiredAt().getTime()
+    ) {
+      return true;
+    }
+
+    if (
+      idleTime > 0 &&
+      SystemClock.elapsedRealtime() - lastPaymentActivity >= idleTime
+    ) {
+      return true;
+    }
+
+    return isInsideWindow();
+  }
+
+  private boolean isInsideWindow() {
+    Calendar now = Calendar.getInstance();
+    int minute =
+      now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE);
+
+    return isInsideWindow(minute, windowStart, windowEnd);
+  }
+
+  /**
+   * Whether the minute of the day falls in the window from `start` (inclusive)
+   * to `end` (exclusive). A negative bound means there is no window.
+   */
+  static boolean isInsideWindow(int minute, int start, int end) {
+    if (start < 0 || end < 0) {
+      return false;
+    }
+
+    if (start <= end) {
+      return minute >= start && minute < end;
+    }
+
+    // the window wraps past midnight
+    return minute >= start || minute < end;
+  }
+
+  void onInstallStarted() {
+    installStartedAt = SystemClock.elapsedRealtime();
+    lastProgressAt = 0;
+  }
+
+  boolean shouldReportProgress(float progress) {
+    long now = SystemClock.elapsedRealtime();
+
+    if (
+      progressInterval > 0 &&
+      progress < 1 &&
+      now - lastProgressAt < progressInterval
+    ) {
+      return false;
+    }
+
+    lastProgressAt = now;
+    return true;
+  }
+
+  /**
+   * Records the install and returns its duration in milliseconds, or -1 if the
+   * start of the install was not seen.
+   */
+  long onInstallFinished(ReaderSoftwareUpdate update, String error) {
+    long duration = installStartedAt > 0
+      ? SystemClock.elapsedRealtime() - installStartedAt
+      : -1;
+    installStartedAt = 0;
+
+    JSObject entry = new JSObject();
+    entry.put(
+      "deviceSoftwareVersion",
+      update != null ? update.getVersion() : null
+    );
+    entry.put("duration", duration);
+    entry.put("finishedAt", System.currentTimeMillis());
+    if (error != null) {
+      entry.put("error", error);
+    }
+
+    history.addLast(entry);
+    while (history.size() > MAX_HISTORY) {
+      history.removeFirst();
+    }
+
+    return duration;
+  }
+
+  JSObject serialize() {
+    JSObject ret = new JSObject();
+    ret.put("enabled", enabled);
+    ret.put("idleMinutes", idleTime / (60 * 1000));
+    ret.put("windowStart", formatTime(windowStart));
+    ret.put("windowEnd", formatTime(windowEnd));
+    ret.put("progressInterval", progressInterval);
+    ret.put("scheduledUpdate", TerminalUtils.serializeUpdate(scheduledUpdate));
+
+    JSArray installs = new JSArray();
+    for (JSObject entry : history) {
+      installs.put(entry);
+    }
+    ret.put("installs", installs);
+
+    return ret;
+  }
+}
@@ -0,0 +1,106 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private static class TestBreaker extends CircuitBreaker {
+
+    long time = 1000;
+
+    @Override
+    long now() {
+      return time;
+    }
+  }
+
+  private static TestBreaker breaker(int failureThreshold) {
+    TestBreaker breaker = new TestBreaker();
+    breaker.failureThreshold = failureThreshold;
+    breaker.resetTimeout = 30 * 1000;
+    return breaker;
+  }
+
+  @Test
+  public void neverOpensWhenDisabled() {
+    TestBreaker breaker = breaker(0);
+
+    for (int i = 0; i < 10; i++) {
+      breaker.onFailure();
+    }
+
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  public void opensAtTheFailureThreshold() {
+    TestBreaker breaker = breaker(3);
+
+    breaker.onFailure();
+    breaker.onFailure();
+    assertTrue(breaker.allowRequest());
+
+    breaker.onFailure();
+    assertFalse(breaker.allowRequest());
+    assertTrue(breaker.serialize().optBoolean("open"));
+  }
+
+  @Test
+  public void successResetsTheFailureCount() {
+    TestBreaker breaker = breaker(3);
+
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onSuccess();
+    breaker.onFailure();
+    breaker.onFailure();
+
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  public void letsOneRequestThroughAfterTheResetTimeout() {
+    TestBreaker breaker = breaker(1);
+    breaker.onFailure();
+
+    breaker.time += 30 * 1000 - 1;
+    assertFalse(breaker.allowRequest());
+
+    breaker.time += 1;
+    assertTrue(breaker.allowRequest());
+    // the circuit stays open until that request reports back
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  public void closesWhenTheHalfOpenRequestSucceeds() {
+    TestBreaker breaker = breaker(1);
+    breaker.onFailure();
+    breaker.time += 30 * 1000;
+    assertTrue(breaker.allowRequest());
+
+    breaker.onSuccess();
+
+    assertTrue(breaker.allowRequest());
+    assertTrue(breaker.allowRequest());
+    assertFalse(breaker.serialize().optBoolean("open"));
+  }
+
+  @Test
+  public void reopensWhenTheHalfOpenRequestFails() {
+    TestBreaker breaker = breaker(1);
+    breaker.onFailure();
+    breaker.time += 30 * 1000;
+    assertTrue(breaker.allowRequest());
+
+    breaker.time += 10;
+    breaker.onFailure();
+
+    assertFalse(breaker.allowRequest());
+    breaker.time += 30 * 1000;
+    assertTrue(breaker.allowRequest());
+  }
+}
@@ -0,0 +1,102 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+
+// the Handler is a no-op in unit tests, so batches are only sent by flush()
+public class EventBatcherTest {
+
+  private final List<JSObject> sent = new ArrayList<>();
+  private EventBatcher batcher;
+
+  @Before
+  public void setUp() {
+    batcher = new EventBatcher(sent::add);
+  }
+
+  private static JSObject data(int value) {
+    JSObject data = new JSObject();
+    data.put("value", value);
+    return data;
+  }
+
+  private void batch(String... eventNames) {
+    batcher.configure(100, new HashSet<>(Arrays.asList(eventNames)));
+  }
+
+  @Test
+  public void batchesNothingByDefault() {
+    assertFalse(batcher.offer("didChangePaymentStatus", data(1)));
+    assertTrue(sent.isEmpty());
+  }
+
+  @Test
+  public void sendsBatchedEventsInOrder() throws JSONException {
+    batch("didChangePaymentStatus");
+
+    assertTrue(batcher.offer("didChangePaymentStatus", data(1)));
+    assertTrue(batcher.offer("didChangePaymentStatus", data(2)));
+    assertTrue(sent.isEmpty());
+
+    batcher.flush();
+
+    assertEquals(1, sent.size());
+    JSONArray events = sent.get(0).getJSONArray("events");
+    assertEquals(2, events.length());
+    assertEquals(
+      "didChangePaymentStatus",
+      events.getJSONObject(0).getString("eventName")
+    );
+    assertEquals(
+      1,
+      events.getJSONObject(0).getJSONObject("data").getInt("value")
+    );
+    assertEquals(
+      2,
+      events.getJSONObject(1).getJSONObject("data").getInt("value")
+    );
+  }
+
+  @Test
+  public void sendsThePendingBatchBeforeAnUnbatchedEvent()
+    throws JSONException {
+    batch("didChangePaymentStatus");
+    batcher.offer("didChangePaymentStatus", data(1));
+
+    assertFalse(batcher.offer("didRequestReaderInput", data(2)));
+
+    assertEquals(1, sent.size());
+    assertEquals(1, sent.get(0).getJSONArray("events").length());
+  }
+
+  @Test
+  public void flushWithoutPendingEventsSendsNothing() {
+    batch("didChangePaymentStatus");
+    batcher.flush();
+
+    assertTrue(sent.isEmpty());
+  }
+
+  @Test
+  public void stopsBatchingWhenTheWindowIsZero() {
+    batch("didChangePaymentStatus");
+    batcher.offer("didChangePaymentStatus", data(1));
+
+    batcher.configure(0, new HashSet<>());
+
+    assertFalse(batcher.offer("didChangePaymentStatus", data(2)));
+    // the event batched before is still delivered first
+    assertEquals(1, sent.size());
+  }
+}
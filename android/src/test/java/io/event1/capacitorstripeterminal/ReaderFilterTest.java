@@ -0,0 +1,114 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ReaderFilterTest {
+
+  // the shape TerminalUtils.serializeReader produces, null values are left out
+  private static JSONObject reader(
+    String serialNumber,
+    int deviceType,
+    String locationId,
+    String label,
+    int status
+  ) throws JSONException {
+    JSONObject reader = new JSONObject();
+    reader.put("serialNumber", serialNumber);
+    reader.put("deviceType", deviceType);
+    reader.put("locationId", locationId);
+    reader.put("label", label);
+    reader.put("status", status);
+    return reader;
+  }
+
+  @Test
+  public void emptyFilterMatchesEveryReader() throws JSONException {
+    ReaderFilter filter = ReaderFilter.fromJSObject(null);
+
+    assertTrue(filter.isEmpty());
+    assertTrue(filter.matches(reader("a", 3, null, null, 0)));
+    assertFalse(filter.matches((JSONObject) null));
+  }
+
+  @Test
+  public void readsTheFilterFromJS() throws JSONException {
+    JSObject object = new JSObject();
+    object.put("deviceTypes", new JSONArray("[3, 4]"));
+    object.put("locationId", "tml_1");
+    object.put("labelPrefix", "Lane");
+    object.put("onlineOnly", true);
+
+    ReaderFilter filter = ReaderFilter.fromJSObject(object);
+
+    assertFalse(filter.isEmpty());
+    assertEquals(2, filter.deviceTypes.size());
+    assertEquals("tml_1", filter.locationId);
+    assertEquals("Lane", filter.labelPrefix);
+    assertTrue(filter.onlineOnly);
+  }
+
+  @Test
+  public void matchesDeviceTypes() throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+    filter.deviceTypes.add(3);
+
+    assertTrue(filter.matches(reader("a", 3, null, null, 0)));
+    assertFalse(filter.matches(reader("b", 4, null, null, 0)));
+  }
+
+  @Test
+  public void matchesTheLocation() throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+    filter.locationId = "tml_1";
+
+    assertTrue(filter.matches(reader("a", 3, "tml_1", null, 0)));
+    assertFalse(filter.matches(reader("b", 3, "tml_2", null, 0)));
+    assertFalse(filter.matches(reader("c", 3, null, null, 0)));
+  }
+
+  @Test
+  public void matchesTheLabelPrefix() throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+    filter.labelPrefix = "Lane";
+
+    assertTrue(filter.matches(reader("a", 3, null, "Lane 1", 0)));
+    assertFalse(filter.matches(reader("b", 3, null, "Bar", 0)));
+    assertFalse(filter.matches(reader("c", 3, null, null, 0)));
+  }
+
+  @Test
+  public void matchesOnlineReadersOnly() throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+    filter.onlineOnly = true;
+
+    assertTrue(filter.matches(reader("a", 3, null, null, 1)));
+    assertFalse(filter.matches(reader("b", 3, null, null, 0)));
+  }
+
+  @Test
+  public void appliesToSerializedReadersInOrder() throws JSONException {
+    ReaderFilter filter = new ReaderFilter();
+    filter.labelPrefix = "Lane";
+
+    JSONArray readers = new JSONArray();
+    readers.put(reader("a", 3, null, "Lane 2", 1));
+    readers.put(reader("b", 3, null, "Bar", 1));
+    readers.put(reader("c", 3, null, "Lane 1", 1));
+
+    JSArray filtered = filter.apply(readers);
+
+    assertEquals(2, filtered.length());
+    assertEquals("a", filtered.getJSONObject(0).getString("serialNumber"));
+    assertEquals("c", filtered.getJSONObject(1).getString("serialNumber"));
+    assertEquals(0, filter.apply((JSONArray) null).length());
+  }
+}
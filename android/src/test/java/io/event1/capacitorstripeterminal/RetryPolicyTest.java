@@ -0,0 +1,59 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void delayStaysBelowTheExponentialCeiling() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.initialDelay = 100;
+    policy.maxDelay = 10 * 1000;
+
+    for (int attempt = 1; attempt <= 5; attempt++) {
+      long ceiling = 100L << (attempt - 1);
+
+      for (int i = 0; i < 100; i++) {
+        long delay = policy.delay(attempt);
+        assertTrue(delay >= 0);
+        assertTrue(delay < ceiling);
+      }
+    }
+  }
+
+  @Test
+  public void delayIsCappedAtMaxDelay() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.initialDelay = 500;
+    policy.maxDelay = 1000;
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(policy.delay(10) < 1000);
+    }
+  }
+
+  @Test
+  public void delayDoesNotOverflowForLateAttempts() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.initialDelay = 500;
+    policy.maxDelay = 30 * 1000;
+
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.delay(1000);
+      assertTrue(delay >= 0);
+      assertTrue(delay < 30 * 1000);
+    }
+  }
+
+  @Test
+  public void delayIsZeroWithoutAnInitialDelay() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.initialDelay = 0;
+
+    assertEquals(0, policy.delay(1));
+    assertEquals(0, policy.delay(5));
+  }
+}
@@ -0,0 +1,60 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class TraceRecorderTest {
+
+  @Test
+  public void redactsSecretKeys() throws JSONException {
+    JSONObject data = new JSONObject();
+    data.put("clientSecret", "pi_123_secret_456");
+    data.put("token", "pst_test_789");
+    data.put("amount", 100);
+
+    JSONObject redacted = TraceRecorder.redact(data);
+
+    assertEquals("[redacted]", redacted.getString("clientSecret"));
+    assertEquals("[redacted]", redacted.getString("token"));
+    assertEquals(100, redacted.getInt("amount"));
+  }
+
+  @Test
+  public void redactsNestedObjectsAndArrays() throws JSONException {
+    JSONObject refund = new JSONObject();
+    refund.put("clientSecret", "secret");
+    refund.put("chargeId", "ch_1");
+
+    JSONObject data = new JSONObject();
+    data.put("refunds", new JSONArray().put(refund).put("plain"));
+    data.put("intent", new JSONObject().put("clientSecret", "secret"));
+
+    JSONObject redacted = TraceRecorder.redact(data);
+
+    JSONArray refunds = redacted.getJSONArray("refunds");
+    assertEquals(
+      "[redacted]",
+      refunds.getJSONObject(0).getString("clientSecret")
+    );
+    assertEquals("ch_1", refunds.getJSONObject(0).getString("chargeId"));
+    assertEquals("plain", refunds.getString(1));
+    assertEquals(
+      "[redacted]",
+      redacted.getJSONObject("intent").getString("clientSecret")
+    );
+  }
+
+  @Test
+  public void leavesTheOriginalUntouched() throws JSONException {
+    JSONObject nested = new JSONObject().put("token", "pst_test_789");
+    JSONObject data = new JSONObject().put("nested", nested);
+
+    TraceRecorder.redact(data);
+
+    assertEquals("pst_test_789", nested.getString("token"));
+  }
+}
@@ -0,0 +1,61 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class TransactionLedgerTest {
+
+  @Test
+  public void filtersByTimeRange() {
+    TransactionLedger.Query query = new TransactionLedger.Query();
+    query.from = 1000;
+    query.to = 2000;
+    List<String> args = new ArrayList<>();
+
+    String where = TransactionLedger.where(query, args);
+
+    assertEquals("recorded_at >= ? AND recorded_at < ?", where);
+    assertEquals(Arrays.asList("1000", "2000"), args);
+  }
+
+  @Test
+  public void filtersByStatus() {
+    TransactionLedger.Query query = new TransactionLedger.Query();
+    query.statuses.add(3);
+    query.statuses.add(4);
+    List<String> args = new ArrayList<>();
+
+    String where = TransactionLedger.where(query, args);
+
+    assertEquals(
+      "recorded_at >= ? AND recorded_at < ? AND status IN (?, ?)",
+      where
+    );
+    assertEquals(
+      Arrays.asList("0", String.valueOf(Long.MAX_VALUE), "3", "4"),
+      args
+    );
+  }
+
+  @Test
+  public void pagesWithOffsetAndLimit() {
+    TransactionLedger.Query query = new TransactionLedger.Query();
+    query.offset = 20;
+    query.limit = 10;
+
+    assertEquals("20, 10", TransactionLedger.limit(query));
+  }
+
+  @Test
+  public void returnsEveryEntryWithoutALimit() {
+    TransactionLedger.Query query = new TransactionLedger.Query();
+    query.offset = 20;
+
+    assertNull(TransactionLedger.limit(query));
+  }
+}
@@ -0,0 +1,64 @@
+package io.event1.capacitorstripeterminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+import org.junit.Test;
+
+public class UpdateSchedulerTest {
+
+  @Test
+  public void parsesTimesIntoMinutesOfTheDay() {
+    assertEquals(0, UpdateScheduler.parseTime("00:00"));
+    assertEquals(22 * 60, UpdateScheduler.parseTime("22:00"));
+    assertEquals(9 * 60 + 5, UpdateScheduler.parseTime(" 9 : 05 "));
+    assertEquals(7 * 60, UpdateScheduler.parseTime("7"));
+    // wraps into the next day
+    assertEquals(30, UpdateScheduler.parseTime("24:30"));
+  }
+
+  @Test
+  public void rejectsMissingAndInvalidTimes() {
+    assertEquals(-1, UpdateScheduler.parseTime(null));
+    assertEquals(-1, UpdateScheduler.parseTime("noon"));
+    assertEquals(-1, UpdateScheduler.parseTime("12:xx"));
+  }
+
+  @Test
+  public void formatsMinutesOfTheDay() {
+    assertEquals("00:00", UpdateScheduler.formatTime(0));
+    assertEquals("22:05", UpdateScheduler.formatTime(22 * 60 + 5));
+    assertEquals(JSObject.NULL, UpdateScheduler.formatTime(-1));
+  }
+
+  @Test
+  public void matchesTheWindowWithinADay() {
+    int start = 60;
+    int end = 120;
+
+    assertTrue(UpdateScheduler.isInsideWindow(60, start, end));
+    assertTrue(UpdateScheduler.isInsideWindow(119, start, end));
+    assertFalse(UpdateScheduler.isInsideWindow(120, start, end));
+    assertFalse(UpdateScheduler.isInsideWindow(59, start, end));
+  }
+
+  @Test
+  public void matchesAWindowThatWrapsPastMidnight() {
+    int start = 22 * 60;
+    int end = 6 * 60;
+
+    assertTrue(UpdateScheduler.isInsideWindow(23 * 60, start, end));
+    assertTrue(UpdateScheduler.isInsideWindow(0, start, end));
+    assertTrue(UpdateScheduler.isInsideWindow(5 * 60 + 59, start, end));
+    assertFalse(UpdateScheduler.isInsideWindow(6 * 60, start, end));
+    assertFalse(UpdateScheduler.isInsideWindow(12 * 60, start, end));
+  }
+
+  @Test
+  public void neverMatchesWithoutAWindow() {
+    assertFalse(UpdateScheduler.isInsideWindow(0, -1, 120));
+    assertFalse(UpdateScheduler.isInsideWindow(0, 0, -1));
+  }
+}
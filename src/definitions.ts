@@ -244,37 +244,563 @@ export interface StripeTerminalConfig {
    * An event handler called [when a reader disconnects](https://stripe.com/docs/terminal/readers/connecting/verifone-p400#handling-disconnects) from your app.
    */
   onUnexpectedReaderDisconnect: () => void
+
+  /**
+   * The log level of the native Stripe Terminal SDK, which logs to Logcat. Use `none` in production to avoid the cost of verbose SDK logging. (Android only.)
+   *
+   * @default 'verbose'
+   */
+  logLevel?: 'none' | 'verbose'
+
+  /**
+   * The number of diagnostic lines kept in memory for `exportLogs`. Once full, the oldest lines are dropped. (Android only.)
+   *
+   * @default 500
+   */
+  logCapacity?: number
+
+  /**
+   * Discover and connect the Tap to Pay reader in the background right after `initialize`, so the first tap is as fast as the ones after it. (Android only.)
+   */
+  localMobileWarmUp?: LocalMobileWarmUpOptions
+
+  /**
+   * Keep the Terminal and the reader connection in a foreground service bound to the application context, so they survive the Activity being destroyed and the plugin reattaches instantly when it comes back. Shows an ongoing notification while the service runs. The service and its permissions are declared by the plugin, see the README to remove them from apps that don't use this. (Android only.)
+   */
+  foregroundService?: ForegroundServiceOptions
+
+  /**
+   * The discovery methods the app will use. When set, `initialize` neither asks for Bluetooth permission nor turns the Bluetooth adapter on. If a Bluetooth method (`BluetoothScan`, `BluetoothProximity` or `Both`) is included, both happen when a Bluetooth discovery first starts. Otherwise Bluetooth is never set up and Bluetooth discoveries are rejected, which suits apps using only internet or Tap to Pay readers. When not set, Bluetooth is set up during `initialize`. (Android only.)
+   */
+  discoveryMethods?: DiscoveryMethod[]
+
+  /**
+   * Discover and connect internet readers with the native Android SDK instead of the JS SDK. Reader health monitoring, failover to a backup reader and native reconnects only cover readers connected natively, so they need this for internet readers. `DiscoveryMethod.Both` is not supported with this option, discover `Internet` and `BluetoothScan` separately. Ignored on other platforms. (Android only.)
+   *
+   * @default false
+   */
+  nativeInternetReaders?: boolean
+
+  /**
+   * When greater than 0, the native plugin collects reader and update events for this many milliseconds and sends them over the bridge as one batch, which is unpacked into the usual observables. About one frame (16) works well. (Android only.)
+   *
+   * @default 0
+   */
+  eventBatchWindow?: number
+}
+
+/**
+ * Events the native plugin collected during one batching window, in the order they happened.
+ */
+export interface TerminalEventBatch {
+  events: { eventName: string; data: any }[]
+}
+
+export interface EventBatchingOptions {
+  /**
+   * Milliseconds to collect events for. `0` turns batching off.
+   */
+  window: number
+
+  /**
+   * The names of the events to batch.
+   */
+  events: string[]
+}
+
+/**
+ * The fields of the connected reader that changed since the last `didChangeReader` event. Fields that were cleared are `null`.
+ *
+ * @category Reader
+ */
+export interface ReaderChange {
+  serialNumber: string | null
+  changes: Partial<Reader> & {
+    batteryStatus?: number
+    isCharging?: boolean
+  }
+}
+
+export interface ForegroundServiceOptions {
+  /**
+   * @default 'Card reader connected'
+   */
+  title?: string
+
+  text?: string
+}
+
+export interface LocalMobileWarmUpOptions {
+  /**
+   * The ID of the location to register the Tap to Pay reader to.
+   */
+  locationId: string
+
+  /**
+   * Whether to warm up a simulated reader.
+   *
+   * @default false
+   */
+  simulated?: boolean
+}
+
+export interface LocalMobileWarmUpStatus {
+  state: 'idle' | 'discovering' | 'connecting' | 'ready' | 'failed'
+
+  /**
+   * Milliseconds spent discovering the reader.
+   */
+  discoveryTime: number
+
+  /**
+   * Milliseconds spent connecting the reader.
+   */
+  connectTime: number
+
+  /**
+   * Milliseconds from the start of the warm-up until the reader was ready, or `0` if it is not ready.
+   */
+  totalTime: number
+
+  serialNumber?: string
+  error?: string
+}
+
+/**
+ * Where `initialize` spent its time. (Android only.)
+ */
+export interface StartupTrace {
+  /**
+   * Milliseconds from the `initialize` call to the end of the last phase.
+   */
+  total: number
+
+  /**
+   * Phases in the order they finished, such as `permission.location`, `permission.bluetooth`, `bluetooth.enable` and `initTerminal`. `start` is relative to the `initialize` call, both are in milliseconds.
+   */
+  phases: { phase: string; start: number; duration: number }[]
+}
+
+/**
+ * A diagnostic line captured by the native plugin. Only the plugin's own lines are captured, not the SDK's internal logging.
+ */
+export interface LogLine {
+  /**
+   * When the line was captured, in milliseconds since the epoch.
+   */
+  time: number
+  level: 'debug' | 'error'
+  message: string
+}
+
+/**
+ * @category Reader
+ */
+export interface DiscoveryConfiguration {
+  /**
+   * Whether to use simulated discovery to discover a device simulator.
+   *
+   * The Terminal SDK comes with the ability to simulate behavior without using physical hardware. This makes it easy to quickly test your integration end-to-end, from pairing with a reader to taking payments.
+   *
+   * @default true
+   */
+  simulated?: boolean
+
+  /**
+   * The method by which to discover readers.
+   *
+   * @default DiscoveryMethod.BluetoothScan
+   */
+  discoveryMethod?: DiscoveryMethod
+
+  /**
+   * A location ID that can be used to filter discovery result so only readers registered to that location are returned. Filtering discovery by a location is only applicable to Internet readers; this parameter must be null when discovering Bluetooth readers.
+   */
+  locationId?: string
+
+  /**
+   * The number of seconds after which discovery stops on its own. Discovery also stops automatically once a reader is connected. (Android only.)
+   *
+   * @default 0 (no timeout)
+   */
+  timeout?: number
+
+  /**
+   * When set along with `pauseDuration`, discovery scans for this many seconds and then pauses for `pauseDuration` seconds, repeating until it is canceled, times out, or a reader is connected. Duty-cycling a Bluetooth scan saves battery on devices left discovering for long periods. (Android only.)
+   *
+   * @default 0 (scan continuously)
+   */
+  scanDuration?: number
+
+  /**
+   * The number of seconds to pause between scan windows when `scanDuration` is set. (Android only.)
+   *
+   * @default 0
+   */
+  pauseDuration?: number
+
+  /**
+   * Only readers matching this filter are sent to JS. On Android the filter is applied natively before the readers are serialized, internet discovery through the JS SDK applies it to the discovered readers.
+   */
+  filter?: DiscoveryFilter
+
+  /**
+   * When set, each `readersDiscovered` event only contains the first `pageSize` matching readers. Use `getDiscoveredReaders` to page through the rest.
+   *
+   * @default 0 (send every matching reader)
+   */
+  pageSize?: number
+
+  /**
+   * When set, the results of internet reader discovery are persisted per `locationId` and, if they are newer than this many seconds, sent in a `readersDiscovered` event right away while the live discovery refreshes them. Cached readers can be connected to immediately.
+   *
+   * @default 0 (no caching)
+   */
+  cacheTtl?: number
+}
+
+/**
+ * Filters applied natively to discovered readers. Every property that is set must match for a reader to be included.
+ *
+ * @category Reader
+ */
+export interface DiscoveryFilter {
+  /**
+   * Only include readers of these device types.
+   */
+  deviceTypes?: DeviceType[]
+
+  /**
+   * Only include readers registered to this location.
+   */
+  locationId?: string
+
+  /**
+   * Only include readers whose label starts with this prefix.
+   */
+  labelPrefix?: string
+
+  /**
+   * Only include readers that are online. (Internet readers only.)
+   *
+   * @default false
+   */
+  onlineOnly?: boolean
+}
+
+/**
+ * Summary of a finished discovery. (Android only.)
+ *
+ * @category Reader
+ */
+export interface DiscoveryResult {
+  /**
+   * Why discovery stopped: `timeout`, `connected` or `completed`.
+   */
+  reason: 'timeout' | 'connected' | 'completed'
+
+  /**
+   * Milliseconds spent actively scanning, excluding pauses.
+   */
+  scanTime: number
+
+  /**
+   * Milliseconds between the start of discovery and when it stopped.
+   */
+  totalTime: number
+
+  /**
+   * The number of scan windows that were started.
+   */
+  scanCount: number
+}
+
+/**
+ * Options accepted by every plugin method that waits on the SDK.
+ */
+export interface CallOptions {
+  /**
+   * Time in milliseconds since the epoch (e.g. `Date.now() + 30000`) after which the call is rejected with the `DEADLINE_EXCEEDED` code. The underlying SDK operation is canceled where possible. (Android only.)
+   */
+  deadline?: number
+}
+
+/**
+ * The plugin methods that support native retries.
+ */
+export type RetryableMethod =
+  | 'retrievePaymentIntent'
+  | 'processPayment'
+  | 'listLocations'
+  | 'connectInternetReader'
+
+/**
+ * Native retry and circuit breaker settings for a network-bound method. (Android only.)
+ */
+export interface RetryPolicyOptions {
+  method: RetryableMethod
+
+  /**
+   * Total number of attempts, including the first one.
+   *
+   * @default 1 (no retries)
+   */
+  maxAttempts?: number
+
+  /**
+   * Upper bound in milliseconds of the random delay before the first retry. The bound doubles with every retry.
+   *
+   * @default 500
+   */
+  initialDelay?: number
+
+  /**
+   * Maximum delay in milliseconds between two attempts.
+   *
+   * @default 10000
+   */
+  maxDelay?: number
+
+  /**
+   * The `TerminalException` error code names that are retried.
+   *
+   * @default ['STRIPE_API_CONNECTION_ERROR', 'REQUEST_TIMED_OUT']
+   */
+  retryableErrorCodes?: string[]
+
+  /**
+   * Number of consecutive retryable failures after which calls fail fast with the `CIRCUIT_OPEN` code.
+   *
+   * @default 0 (no circuit breaker)
+   */
+  failureThreshold?: number
+
+  /**
+   * Milliseconds the circuit stays open before a single call is let through to test the backend.
+   *
+   * @default 30000
+   */
+  resetTimeout?: number
+}
+
+export interface RetryPolicy
+  extends Required<Omit<RetryPolicyOptions, 'method'>> {
+  circuit: { open: boolean; failures: number }
+}
+
+/**
+ * Calls that are waiting on the SDK, as reported by the native watchdog.
+ */
+export interface PendingCalls {
+  outstanding: number
+
+  /**
+   * Age in milliseconds of the oldest outstanding call.
+   */
+  oldestAge: number
+
+  calls: { method: string; age: number }[]
+}
+
+export interface MetricsOptions {
+  /**
+   * @default true
+   */
+  enabled?: boolean
+
+  /**
+   * Seconds between snapshots, at least 1. Periods without any activity are not written.
+   *
+   * @default 60
+   */
+  interval?: number
+
+  /**
+   * Size in bytes at which the current file is rotated, at least 1024.
+   *
+   * @default 262144
+   */
+  maxFileSize?: number
+
+  /**
+   * The number of files kept, including the current one. Lowering it deletes the oldest files beyond the new limit.
+   *
+   * @default 5
+   */
+  maxFiles?: number
+}
+
+export type MetricsStatus = Required<MetricsOptions>
+
+export interface TraceRecording {
+  /**
+   * Absolute path of the saved trace, to pass to `replayTrace`.
+   */
+  path: string
+
+  entries: number
+
+  /**
+   * Entries not recorded because the trace reached `maxEntries`.
+   */
+  dropped: number
+}
+
+/**
+ * Count and durations in milliseconds.
+ */
+export interface TraceTiming {
+  count: number
+  total: number
+  max: number
+  avg: number
+}
+
+export interface TraceReplayReport {
+  entries: number
+
+  /**
+   * Callbacks fed back into the plugin's event handlers.
+   */
+  replayed: number
+
+  /**
+   * Recorded events, plugin calls, SDK results and callbacks that can't be rebuilt.
+   */
+  skipped: number
+
+  speed: number
+
+  /**
+   * Milliseconds the replay took.
+   */
+  duration: number
+
+  /**
+   * Time the plugin spent handling the replayed entries.
+   */
+  overhead: TraceTiming
+
+  /**
+   * How far behind schedule entries were handled.
+   */
+  lag: TraceTiming
+
+  byName: { [name: string]: TraceTiming }
+}
+
+/**
+ * A refund of part or all of a charge. `amount` is in the smallest currency unit.
+ */
+export interface RefundRequest {
+  chargeId: string
+  amount: number
+  currency: string
+}
+
+export interface Refund {
+  stripeId: string
+  amount: number
+  currency: string
+  status: string | null
+}
+
+/**
+ * The outcome and timing of one refund processed by `processRefunds`. Durations are in milliseconds.
+ */
+export interface RefundResult extends RefundRequest {
+  /**
+   * Position of the refund in the `refunds` passed to `processRefunds`.
+   */
+  index: number
+  refund?: Refund
+  error?: string
+  code?: string
+  collectTime: number
+
+  /**
+   * Missing if collecting the refund failed.
+   */
+  processTime?: number
+  totalTime: number
+}
+
+export interface RefundQueueSummary {
+  succeeded: number
+  failed: number
+
+  /**
+   * Whether `cancelProcessRefunds` stopped the queue early.
+   */
+  canceled: boolean
+
+  /**
+   * Milliseconds from start to finish.
+   */
+  duration: number
+}
+
+/**
+ * A payment recorded in the local ledger when `processPayment` finished.
+ */
+export interface LedgerTransaction {
+  stripeId: string
+  amount: number
+  currency: string | null
+  status: PaymentIntentStatus
+  readerSerialNumber: string | null
+
+  /**
+   * When the intent was created, in seconds since the epoch.
+   */
+  created: number
+
+  /**
+   * When the intent was recorded, in milliseconds since the epoch.
+   */
+  recordedAt: number
+}
+
+export interface LedgerTotal {
+  currency: string | null
+  status: PaymentIntentStatus
+  count: number
+  amount: number
 }
 
-/**
- * @category Reader
- */
-export interface DiscoveryConfiguration {
+export interface LedgerQuery {
   /**
-   * Whether to use simulated discovery to discover a device simulator.
-   *
-   * The Terminal SDK comes with the ability to simulate behavior without using physical hardware. This makes it easy to quickly test your integration end-to-end, from pairing with a reader to taking payments.
-   *
-   * @default true
+   * Only include transactions recorded at or after this time, in milliseconds since the epoch.
    */
-  simulated?: boolean
+  from?: number
 
   /**
-   * The method by which to discover readers.
-   *
-   * @default DiscoveryMethod.BluetoothScan
+   * Only include transactions recorded before this time, in milliseconds since the epoch.
    */
-  discoveryMethod?: DiscoveryMethod
+  to?: number
 
   /**
-   * A location ID that can be used to filter discovery result so only readers registered to that location are returned. Filtering discovery by a location is only applicable to Internet readers; this parameter must be null when discovering Bluetooth readers.
+   * Only include transactions with one of these statuses.
    */
-  locationId?: string
+  status?: PaymentIntentStatus[]
+
+  /**
+   * The maximum number of transactions to return. Totals always cover every matching transaction.
+   */
+  limit?: number
+
+  offset?: number
+}
+
+export interface LedgerResult {
+  transactions: LedgerTransaction[]
+  totals: LedgerTotal[]
 }
+
 /**
  * @category Reader
  */
-export interface ConnectionConfiguration {
+export interface ConnectionConfiguration extends CallOptions {
   /**
    * The ID of the [Location](https://stripe.com/docs/api/terminal/locations) which the reader should be registered to during connection.
    *
@@ -465,6 +991,317 @@ export interface ReaderSoftwareUpdate {
   deviceSoftwareVersion: string
 }
 
+/**
+ * Options for holding optional reader software updates until the lane is idle. Updates are always installed before their `requiredAt` deadline, and never while a payment is in progress. (Android only.)
+ *
+ * @category Reader Updates
+ */
+export interface UpdateScheduleOptions {
+  /**
+   * Whether available updates should be held by the scheduler. Calling `installAvailableUpdate` still installs right away.
+   *
+   * @default true
+   */
+  enabled?: boolean
+
+  /**
+   * Install once there has been no payment activity for this many minutes.
+   */
+  idleMinutes?: number
+
+  /**
+   * Start of a daily install window in 24 hour `HH:mm` local time, e.g. `22:00`.
+   */
+  windowStart?: string
+
+  /**
+   * End of the daily install window in 24 hour `HH:mm` local time. The window may wrap past midnight.
+   */
+  windowEnd?: string
+
+  /**
+   * Minimum number of milliseconds between `didReportReaderSoftwareUpdateProgress` events.
+   *
+   * @default 0 (every progress update is sent)
+   */
+  progressInterval?: number
+}
+
+/**
+ * @category Reader Updates
+ */
+export interface UpdateScheduleStatus {
+  enabled: boolean
+  idleMinutes: number
+
+  /**
+   * The install window as `HH:mm`, or `null` if no window is set.
+   */
+  windowStart: string | null
+  windowEnd: string | null
+
+  progressInterval: number
+
+  /**
+   * The update being held by the scheduler, if any.
+   */
+  scheduledUpdate: ReaderSoftwareUpdate | null
+
+  /**
+   * The most recent installs, oldest first. `duration` is in milliseconds, or -1 if the start of the install was not seen.
+   */
+  installs: {
+    deviceSoftwareVersion: string | null
+    duration: number
+    finishedAt: number
+    error?: string
+  }[]
+}
+
+/**
+ * Connection statistics of one reader, kept on the device across app restarts. Time a reader spent disconnected on purpose counts neither as connected nor as down. Durations are in milliseconds. (Android only.)
+ *
+ * @category Reader
+ */
+export interface ReaderStats {
+  serialNumber: string
+
+  /**
+   * When the reader was first seen, in milliseconds since the epoch.
+   */
+  since: number
+  connected: boolean
+
+  /**
+   * Whether the reader is down after an unexpected disconnect.
+   */
+  down: boolean
+
+  /**
+   * Percentage of `connectedTime` in `connectedTime + downTime`, or -1 if neither has been recorded yet.
+   */
+  uptime: number
+  connectedTime: number
+
+  /**
+   * Time from unexpected disconnects until the reader, or another reader replacing it, connected again.
+   */
+  downTime: number
+  connects: number
+
+  /**
+   * Unexpected disconnects only.
+   */
+  disconnects: number
+  reconnects: {
+    started: number
+    succeeded: number
+    failed: number
+
+    /**
+     * -1 when no reconnect has succeeded yet.
+     */
+    latency: { min: number; max: number; avg: number }
+
+    /**
+     * Successful reconnects by latency. `le` is the bucket's upper bound in milliseconds, -1 for the last bucket, which has no bound.
+     */
+    histogram: { le: number; count: number }[]
+  }
+}
+
+/**
+ * Options for reconnecting USB, handoff and Tap to Pay readers natively after an unexpected disconnect, and internet readers when `nativeInternetReaders` is set. Bluetooth readers keep using `autoReconnectOnUnexpectedDisconnect`. Delays grow exponentially from `initialDelay` up to `maxDelay`, with full jitter. (Android only.)
+ *
+ * @category Reader
+ */
+export interface AutoReconnectPolicyOptions {
+  /**
+   * @default true
+   */
+  enabled?: boolean
+
+  /**
+   * @default 5
+   */
+  maxAttempts?: number
+
+  /**
+   * Milliseconds.
+   *
+   * @default 1000
+   */
+  initialDelay?: number
+
+  /**
+   * Milliseconds.
+   *
+   * @default 30000
+   */
+  maxDelay?: number
+}
+
+/**
+ * @category Reader
+ */
+export interface AutoReconnectPolicy {
+  enabled: boolean
+  maxAttempts: number
+  initialDelay: number
+  maxDelay: number
+
+  /**
+   * Whether a reconnect is in progress.
+   */
+  reconnecting: boolean
+}
+
+/**
+ * Progress of a native reconnect, sent with `didStartReaderReconnect`, `didSucceedReaderReconnect` and `didFailReaderReconnect`. Bluetooth reconnects done by the SDK send no data. (Android only.)
+ *
+ * @category Reader
+ */
+export interface ReaderReconnectEvent {
+  serialNumber: string
+  type: string
+  attempts: number
+  maxAttempts: number
+
+  /**
+   * Milliseconds each attempt took, in order.
+   */
+  latencies: number[]
+
+  /**
+   * Milliseconds from the disconnect to the outcome. Missing when the reconnect starts.
+   */
+  duration?: number
+
+  /**
+   * Whether `cancelAutoReconnect`, `disconnectReader` or a manual connect stopped the reconnect.
+   */
+  canceled?: boolean
+  error?: string
+}
+
+/**
+ * The outcome of connecting the backup reader after the connected reader disconnected unexpectedly. (Android only.)
+ *
+ * @category Reader
+ */
+export interface ReaderFailoverResult {
+  /**
+   * Serial number of the reader that disconnected.
+   */
+  from: string
+
+  /**
+   * Serial number of the backup reader.
+   */
+  to: string
+
+  /**
+   * How both readers are connected, e.g. `internet` or `bluetooth`.
+   */
+  type: string
+
+  /**
+   * The backup reader, now connected. Missing if the failover failed.
+   */
+  reader?: Reader
+  error?: string
+  code?: string
+
+  /**
+   * Milliseconds from the disconnect to the backup being connected, or to the failure.
+   */
+  duration: number
+  time: number
+}
+
+/**
+ * @category Reader
+ */
+export interface ReaderFailoverStatus {
+  backupSerialNumber: string | null
+  inProgress: boolean
+  failovers: number
+  failures: number
+  lastFailover: ReaderFailoverResult | null
+}
+
+/**
+ * Options for watching the connected internet reader between sales. The reader is probed by clearing its display, which only happens while nothing is using it: no payment or refund in progress, no cart on the display and no update being installed. Only internet readers connected through the native SDK are watched, see `nativeInternetReaders`. (Android only.)
+ *
+ * @category Reader
+ */
+export interface ReaderHealthOptions {
+  /**
+   * @default true
+   */
+  enabled?: boolean
+
+  /**
+   * Seconds between probes.
+   *
+   * @default 30
+   */
+  interval?: number
+
+  /**
+   * Number of failed probes in a row before the reader is considered unreachable.
+   *
+   * @default 2
+   */
+  failureThreshold?: number
+
+  /**
+   * Whether to reconnect the reader, with the configuration it was connected with, once it is considered unreachable.
+   *
+   * @default true
+   */
+  reconnect?: boolean
+}
+
+/**
+ * @category Reader
+ */
+export interface ReaderHealth {
+  enabled: boolean
+  interval: number
+  failureThreshold: number
+  reconnect: boolean
+  state: 'healthy' | 'degraded' | 'reconnecting' | 'disconnected'
+  consecutiveFailures: number
+  probes: number
+  failures: number
+  reconnects: number
+
+  /**
+   * Milliseconds the last proactive reconnect took, or -1 if there was none.
+   */
+  lastReconnectTime: number
+
+  /**
+   * Probe round trip times in milliseconds. `last` includes failed probes, `avg` and `max` only successful ones. -1 when there is no probe yet.
+   */
+  latency: {
+    last: number
+    avg: number
+    max: number
+  }
+
+  /**
+   * The most recent probes, oldest first.
+   */
+  samples: { time: number; latency: number; ok: boolean }[]
+
+  /**
+   * The most recent connection status changes, oldest first.
+   */
+  transitions: { status: string; time: number }[]
+}
+
 /**
  * The display messages that a reader may request be displayed by your app.
  *
@@ -770,7 +1607,7 @@ export interface Location {
  *
  * @see https://stripe.com/docs/terminal/readers/connecting
  */
-export interface ListLocationsParameters {
+export interface ListLocationsParameters extends CallOptions {
   /**
    * A limit on the number of objects to be returned. Limit can range between 1 and 100, and the default is 10.
    *
@@ -853,7 +1690,7 @@ export interface TippingConfig {
   eligibleAmount?: number | null
 }
 
-export interface CollectConfig {
+export interface CollectConfig extends CallOptions {
   /**
    * Bypass tipping selection if it would have otherwise been shown.
    *
@@ -887,42 +1724,75 @@ export interface StripeTerminalInterface {
     errorMessage?: string
   ): Promise<void>
 
-  initialize(): Promise<void>
+  initialize(options?: {
+    logLevel?: 'none' | 'verbose'
+    logCapacity?: number
+    localMobileWarmUp?: LocalMobileWarmUpOptions
+    foregroundService?: ForegroundServiceOptions
+    discoveryMethods?: DiscoveryMethod[]
+  }): Promise<void>
+
+  getStartupTrace(): Promise<StartupTrace>
+
+  getLocalMobileWarmUp(): Promise<LocalMobileWarmUpStatus>
 
-  discoverReaders(options: DiscoveryConfiguration): Promise<void>
+  stopForegroundService(): Promise<void>
+
+  exportLogs(options?: { clear?: boolean }): Promise<{ lines: LogLine[] }>
+
+  discoverReaders(
+    options: DiscoveryConfiguration
+  ): Promise<DiscoveryResult | void>
 
   cancelDiscoverReaders(): Promise<void>
 
-  connectBluetoothReader(options: {
-    serialNumber: string
-    locationId: string
-    autoReconnectOnUnexpectedDisconnect?: boolean
-  }): Promise<{ reader: Reader | null }>
-
-  connectInternetReader(options: {
-    serialNumber: string
-    ipAddress?: string
-    stripeId?: string
-    failIfInUse?: boolean
-  }): Promise<{ reader: Reader | null }>
-
-  connectUsbReader(options: {
-    serialNumber: string
-    locationId: string
-  }): Promise<{ reader: Reader | null }>
-
-  connectLocalMobileReader(options: {
-    serialNumber: string
-    locationId: string
-    onBehalfOf?: string
-    merchantDisplayName?: string
-    tosAcceptancePermitted?: boolean
-  }): Promise<{ reader: Reader | null }>
-
-  connectHandoffReader(options: {
-    serialNumber: string
-    locationId: string
-  }): Promise<{ reader: Reader | null }>
+  clearReaderCache(): Promise<void>
+
+  getDiscoveredReaders(options?: {
+    offset?: number
+    limit?: number
+  }): Promise<{ readers: Reader[]; total: number }>
+
+  connectBluetoothReader(
+    options: {
+      serialNumber: string
+      locationId: string
+      autoReconnectOnUnexpectedDisconnect?: boolean
+    } & CallOptions
+  ): Promise<{ reader: Reader | null }>
+
+  connectInternetReader(
+    options: {
+      serialNumber: string
+      ipAddress?: string
+      stripeId?: string
+      failIfInUse?: boolean
+    } & CallOptions
+  ): Promise<{ reader: Reader | null }>
+
+  connectUsbReader(
+    options: {
+      serialNumber: string
+      locationId: string
+    } & CallOptions
+  ): Promise<{ reader: Reader | null }>
+
+  connectLocalMobileReader(
+    options: {
+      serialNumber: string
+      locationId: string
+      onBehalfOf?: string
+      merchantDisplayName?: string
+      tosAcceptancePermitted?: boolean
+    } & CallOptions
+  ): Promise<{ reader: Reader | null }>
+
+  connectHandoffReader(
+    options: {
+      serialNumber: string
+      locationId: string
+    } & CallOptions
+  ): Promise<{ reader: Reader | null }>
 
   getConnectedReader(): Promise<{ reader: Reader | null }>
 
@@ -933,15 +1803,78 @@ export interface StripeTerminalInterface {
 
   getPaymentStatus(): Promise<{ status: PaymentStatus }>
 
-  disconnectReader(): Promise<void>
+  disconnectReader(options?: CallOptions): Promise<void>
+
+  getPendingCalls(): Promise<PendingCalls>
+
+  queryTransactions(options?: LedgerQuery): Promise<LedgerResult>
+
+  setMetricsOptions(options: MetricsOptions): Promise<MetricsStatus>
+
+  setEventBatching(
+    options: EventBatchingOptions
+  ): Promise<EventBatchingOptions>
+
+  getMetricsFiles(): Promise<{ files: string[] }>
+
+  collectRefundPaymentMethod(options: RefundRequest): Promise<void>
+
+  cancelCollectRefundPaymentMethod(): Promise<void>
+
+  processRefund(): Promise<{ refund: Refund; processTime: number }>
+
+  processRefunds(options: {
+    refunds: RefundRequest[]
+  }): Promise<RefundQueueSummary>
+
+  cancelProcessRefunds(): Promise<void>
+
+  startTraceRecording(options?: { maxEntries?: number }): Promise<void>
+
+  stopTraceRecording(): Promise<TraceRecording>
+
+  replayTrace(options: {
+    path: string
+    speed?: number
+  }): Promise<TraceReplayReport>
+
+  clearTransactions(options?: { before?: number }): Promise<{ removed: number }>
+
+  setRetryPolicy(options: RetryPolicyOptions): Promise<RetryPolicy>
+
+  getRetryPolicy(options: { method: RetryableMethod }): Promise<RetryPolicy>
 
   installAvailableUpdate(): Promise<void>
 
   cancelInstallUpdate(): Promise<void>
 
-  retrievePaymentIntent(options: {
-    clientSecret: string
-  }): Promise<{ intent: PaymentIntent | null }>
+  setUpdateSchedule(
+    options: UpdateScheduleOptions
+  ): Promise<UpdateScheduleStatus>
+
+  getUpdateSchedule(): Promise<UpdateScheduleStatus>
+
+  setBackupReader(options: {
+    serialNumber: string | null
+  }): Promise<ReaderFailoverStatus>
+
+  getFailoverStatus(): Promise<ReaderFailoverStatus>
+
+  getReaderStats(options?: {
+    serialNumber?: string
+  }): Promise<{ readers: ReaderStats[] }>
+
+  clearReaderStats(): Promise<void>
+
+  setReaderHealthOptions(options: ReaderHealthOptions): Promise<ReaderHealth>
+
+  getReaderHealth(): Promise<ReaderHealth>
+
+  retrievePaymentIntent(
+    options: {
+      clientSecret: string
+    } & CallOptions
+  ): Promise<{ intent: PaymentIntent | null }>
 
   collectPaymentMethod(configOverride?: CollectConfig): Promise<{
     intent: PaymentIntent
@@ -949,7 +1882,7 @@ export interface StripeTerminalInterface {
 
   cancelCollectPaymentMethod(): Promise<void>
 
-  processPayment(): Promise<{ intent: PaymentIntent }>
+  processPayment(options?: CallOptions): Promise<{ intent: PaymentIntent }>
 
   clearCachedCredentials(): Promise<void>
 
@@ -967,6 +1900,12 @@ export interface StripeTerminalInterface {
     config: SimulatorConfiguration
   ): Promise<SimulatorConfiguration>
 
+  setAutoReconnectPolicy(
+    options: AutoReconnectPolicyOptions
+  ): Promise<AutoReconnectPolicy>
+
+  getAutoReconnectPolicy(): Promise<AutoReconnectPolicy>
+
   cancelAutoReconnect(): Promise<void>
 
   /**
@@ -989,7 +1928,46 @@ export interface StripeTerminalInterface {
 
   addListener(
     eventName: 'readersDiscovered',
-    listenerFunc: (event: { readers?: Reader[] }) => void
+    listenerFunc: (event: {
+      readers?: Reader[]
+      total?: number
+      cached?: boolean
+    }) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didFinishDiscovery',
+    listenerFunc: (result: DiscoveryResult) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'terminalEvents',
+    listenerFunc: (batch: TerminalEventBatch) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didChangeReader',
+    listenerFunc: (change: ReaderChange) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didProcessRefund',
+    listenerFunc: (result: RefundResult) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didFailoverReader',
+    listenerFunc: (result: ReaderFailoverResult) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didReportReaderHealth',
+    listenerFunc: (health: ReaderHealth) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle
+
+  addListener(
+    eventName: 'didFinishLocalMobileWarmUp',
+    listenerFunc: (status: LocalMobileWarmUpStatus) => void
   ): Promise<PluginListenerHandle> & PluginListenerHandle
 
   addListener(
@@ -1017,6 +1995,7 @@ export interface StripeTerminalInterface {
     listenerFunc: (data: {
       update?: ReaderSoftwareUpdate
       error?: string
+      duration?: number
     }) => void
   ): Promise<PluginListenerHandle> & PluginListenerHandle
 
@@ -1025,7 +2004,7 @@ export interface StripeTerminalInterface {
       | 'didStartReaderReconnect'
       | 'didSucceedReaderReconnect'
       | 'didFailReaderReconnect',
-    listenerFunc: (data: null) => void
+    listenerFunc: (data: ReaderReconnectEvent | null) => void
   ): Promise<PluginListenerHandle> & PluginListenerHandle
 
   addListener(
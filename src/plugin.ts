@@ -1,5 +1,5 @@
 import { Capacitor, PluginListenerHandle } from '@capacitor/core'
-import { Observable } from 'rxjs'
+import { Observable, ReplaySubject, map, share } from 'rxjs'
 import { transform, isObject, isArray, snakeCase } from 'lodash'
 import { Stripe } from 'stripe'
 
@@ -8,12 +8,14 @@ import {
   StripeTerminalConfig,
   DiscoveryConfiguration,
   DiscoveryMethod,
+  DiscoveryResult,
   InternetConnectionConfiguration,
   BluetoothConnectionConfiguration,
   UsbConnectionConfiguration,
   HandoffConnectionConfiguration,
   LocalMobileConnectionConfiguration,
   Reader,
+  ReaderChange,
   ConnectionStatus,
   PaymentStatus,
   ReaderDisplayMessage,
@@ -27,7 +29,38 @@ import {
   DeviceStyle,
   PermissionStatus,
   ReaderSoftwareUpdate,
-  CollectConfig
+  CollectConfig,
+  CallOptions,
+  LedgerQuery,
+  LedgerResult,
+  ForegroundServiceOptions,
+  LocalMobileWarmUpOptions,
+  LocalMobileWarmUpStatus,
+  LogLine,
+  MetricsOptions,
+  MetricsStatus,
+  TerminalEventBatch,
+  TraceRecording,
+  TraceReplayReport,
+  PendingCalls,
+  ReaderStats,
+  AutoReconnectPolicy,
+  AutoReconnectPolicyOptions,
+  ReaderReconnectEvent,
+  ReaderFailoverResult,
+  ReaderFailoverStatus,
+  ReaderHealth,
+  ReaderHealthOptions,
+  RetryableMethod,
+  Refund,
+  RefundQueueSummary,
+  RefundRequest,
+  RefundResult,
+  StartupTrace,
+  RetryPolicy,
+  RetryPolicyOptions,
+  UpdateScheduleOptions,
+  UpdateScheduleStatus
 } from './definitions'
 
 import { StripeTerminal } from './plugin-registration'
@@ -45,10 +78,35 @@ export class StripeTerminalError extends Error {
   payment_intent?: Stripe.PaymentIntent
 }
 
+/**
+ * The events delivered through `_listenerToObservable`, which are the ones the native plugin may batch.
+ */
+const OBSERVABLE_EVENTS = [
+  'didRequestReaderDisplayMessage',
+  'didRequestReaderInput',
+  'didReportAvailableUpdate',
+  'didStartInstallingUpdate',
+  'didReportReaderSoftwareUpdateProgress',
+  'didFinishInstallingUpdate',
+  'didStartReaderReconnect',
+  'didSucceedReaderReconnect',
+  'didFailReaderReconnect',
+  'didFinishDiscovery',
+  'didFinishLocalMobileWarmUp',
+  'didChangeReader',
+  'didProcessRefund',
+  'didReportReaderHealth',
+  'didFailoverReader'
+] as const
+
+type ObservableEvent = typeof OBSERVABLE_EVENTS[number]
+
 export class StripeTerminalPlugin {
   public isInitialized = false
 
   private stripeTerminalWeb?: StripeTerminalWeb
+  private webSdkLoading?: Promise<StripeTerminalWeb | undefined>
+  private webSdkLoaded = new ReplaySubject<StripeTerminalWeb>(1)
 
   private _fetchConnectionToken: () => Promise<string> = () =>
     Promise.reject('You must initialize StripeTerminalPlugin first.')
@@ -62,11 +120,20 @@ export class StripeTerminalPlugin {
   private isDiscovering = false
   private isCollectingPaymentMethod = false
   private listeners: { [key: string]: PluginListenerHandle } = {}
+  private sharedEvents: { [name: string]: Observable<any> } = {}
 
   private simulatedCardType: SimulatedCardType | null = null
 
   private selectedSdkType: 'native' | 'js' = 'native'
 
+  private logLevel?: 'none' | 'verbose'
+  private logCapacity?: number
+  private localMobileWarmUp?: LocalMobileWarmUpOptions
+  private foregroundService?: ForegroundServiceOptions
+  private eventBatchWindow = 0
+  private discoveryMethods?: DiscoveryMethod[]
+  private nativeInternetReaders = false
+
   private get activeSdkType(): 'native' | 'js' {
     if (
       this.selectedSdkType === 'js' &&
@@ -98,6 +165,14 @@ export class StripeTerminalPlugin {
   constructor(options: StripeTerminalConfig) {
     this._fetchConnectionToken = options.fetchConnectionToken
     this._onUnexpectedReaderDisconnect = options.onUnexpectedReaderDisconnect
+    this.logLevel = options.logLevel
+    this.logCapacity = options.logCapacity
+    this.localMobileWarmUp = options.localMobileWarmUp
+    this.foregroundService = options.foregroundService
+    this.eventBatchWindow = options.eventBatchWindow ?? 0
+    this.discoveryMethods = options.discoveryMethods
+    this.nativeInternetReaders =
+      !!options.nativeInternetReaders && Capacitor.getPlatform() === 'android'
   }
 
   private isNative(): boolean {
@@ -106,13 +181,7 @@ export class StripeTerminalPlugin {
     )
   }
 
-  private requestConnectionToken(sdkType: string) {
-    const sdk = sdkType === 'native' ? StripeTerminal : this.stripeTerminalWeb
-
-    if (!sdk) {
-      return
-    }
-
+  private requestConnectionToken(sdk: StripeTerminalInterface) {
     this._fetchConnectionToken()
       .then(token => {
         if (token) {
@@ -132,47 +201,89 @@ export class StripeTerminalPlugin {
   }
 
   private async init() {
-    if (this.isNative()) {
-      // if on native android or ios, initialize the js sdk as well
-      this.stripeTerminalWeb = new StripeTerminalWeb()
-    }
-
-    this.listeners['connectionTokenListenerNative'] =
-      await StripeTerminal.addListener('requestConnectionToken', () =>
-        this.requestConnectionToken('native')
-      )
-
-    this.listeners['unexpectedReaderDisconnectListenerNative'] =
-      await StripeTerminal.addListener(
-        'didReportUnexpectedReaderDisconnect',
-        () => {
-          this._onUnexpectedReaderDisconnect()
-        }
-      )
-
-    if (this.stripeTerminalWeb) {
-      this.listeners['connectionTokenListenerJs'] =
-        await this.stripeTerminalWeb.addListener('requestConnectionToken', () =>
-          this.requestConnectionToken('js')
-        )
-
-      this.listeners['unexpectedReaderDisconnectListenerJs'] =
-        await this.stripeTerminalWeb.addListener(
+    const [connectionTokenListener, unexpectedReaderDisconnectListener] =
+      await Promise.all([
+        StripeTerminal.addListener('requestConnectionToken', () =>
+          this.requestConnectionToken(StripeTerminal)
+        ),
+        StripeTerminal.addListener(
           'didReportUnexpectedReaderDisconnect',
           () => {
             this._onUnexpectedReaderDisconnect()
           }
         )
-    }
+      ])
 
-    await Promise.all([
-      StripeTerminal.initialize(),
-      this.stripeTerminalWeb?.initialize()
-    ])
+    this.listeners['connectionTokenListenerNative'] = connectionTokenListener
+    this.listeners['unexpectedReaderDisconnectListenerNative'] =
+      unexpectedReaderDisconnectListener
+
+    await StripeTerminal.initialize({
+      logLevel: this.logLevel,
+      logCapacity: this.logCapacity,
+      localMobileWarmUp: this.localMobileWarmUp,
+      foregroundService: this.foregroundService,
+      discoveryMethods: this.discoveryMethods
+    })
+
+    if (this.isBatchingEvents()) {
+      await StripeTerminal.setEventBatching({
+        window: this.eventBatchWindow,
+        events: [...OBSERVABLE_EVENTS]
+      })
+    }
 
     this.isInitialized = true
   }
 
+  /**
+   * Creates and initializes the js sdk the first time it is selected. Apps that only use native readers never load it.
+   */
+  private loadWebSdk(): Promise<StripeTerminalWeb | undefined> {
+    if (!this.isNative()) {
+      return Promise.resolve(undefined)
+    }
+
+    if (!this.webSdkLoading) {
+      this.webSdkLoading = (async () => {
+        const web = new StripeTerminalWeb()
+
+        const [connectionTokenListener, unexpectedReaderDisconnectListener] =
+          await Promise.all([
+            web.addListener('requestConnectionToken', () =>
+              this.requestConnectionToken(web)
+            ),
+            web.addListener('didReportUnexpectedReaderDisconnect', () => {
+              this._onUnexpectedReaderDisconnect()
+            })
+          ])
+
+        this.listeners['connectionTokenListenerJs'] = connectionTokenListener
+        this.listeners['unexpectedReaderDisconnectListenerJs'] =
+          unexpectedReaderDisconnectListener
+
+        await web.initialize()
+
+        // only route calls to the js sdk once it is ready for them
+        this.stripeTerminalWeb = web
+        this.webSdkLoaded.next(web)
+
+        return web
+      })()
+
+      // allow a later selection to try again
+      this.webSdkLoading.catch(() => {
+        this.webSdkLoading = undefined
+      })
+    }
+
+    return this.webSdkLoading
+  }
+
+  private isBatchingEvents(): boolean {
+    return this.eventBatchWindow > 0 && Capacitor.getPlatform() === 'android'
+  }
+
   private translateAndroidReaderInput(data: {
     value: string
     isAndroid?: boolean
@@ -230,60 +341,80 @@ export class StripeTerminalPlugin {
     return parseFloat(data.value)
   }
 
-  private _listenerToObservable(
-    name:
-      | 'didRequestReaderDisplayMessage'
-      | 'didRequestReaderInput'
-      | 'didReportAvailableUpdate'
-      | 'didStartInstallingUpdate'
-      | 'didReportReaderSoftwareUpdateProgress'
-      | 'didFinishInstallingUpdate'
-      | 'didStartReaderReconnect'
-      | 'didSucceedReaderReconnect'
-      | 'didFailReaderReconnect',
-    transformFunc?: (data: any) => any
-  ): Observable<any> {
-    return new Observable(subscriber => {
-      let listenerNative: PluginListenerHandle
-      let listenerJs: PluginListenerHandle
-
-      StripeTerminal.addListener(name, (data: any) => {
-        // only send the event if the native sdk is in use
-        if (this.activeSdkType === 'native') {
-          if (transformFunc) {
-            return subscriber.next(transformFunc(data))
+  /**
+   * Returns the named event from whichever sdk is active. Every subscriber shares one native and one js listener per event name, added for the first subscriber and removed once the last one unsubscribes, so the bridge sends each event once however many components observe it.
+   */
+  private _sharedEvent(name: string): Observable<any> {
+    if (!this.sharedEvents[name]) {
+      this.sharedEvents[name] = new Observable(subscriber => {
+        const handles: PluginListenerHandle[] = []
+        let closed = false
+
+        const track = (handle: PluginListenerHandle) => {
+          // the subscription may have ended before the listener was added
+          if (closed) {
+            handle.remove()
+          } else {
+            handles.push(handle)
           }
-
-          return subscriber.next(data)
         }
-      }).then(l => {
-        listenerNative = l
-      })
 
-      if (this.stripeTerminalWeb) {
-        this.stripeTerminalWeb
-          .addListener(name, (data: any) => {
-            // only send the event if the js sdk is in use
-            if (this.activeSdkType === 'js') {
-              if (transformFunc) {
-                return subscriber.next(transformFunc(data))
+        StripeTerminal.addListener(name, (data: any) => {
+          // only send the event if the native sdk is in use
+          if (this.activeSdkType === 'native') {
+            subscriber.next(data)
+          }
+        }).then(track)
+
+        const batches =
+          this.isBatchingEvents() &&
+          (OBSERVABLE_EVENTS as readonly string[]).includes(name)
+            ? this._sharedEvent('terminalEvents').subscribe(
+                (batch: TerminalEventBatch) => {
+                  // batches come from the native sdk, so the same guard applies
+                  if (this.activeSdkType !== 'native') {
+                    return
+                  }
+
+                  // events that arrive close together are delivered as one ordered batch
+                  batch.events
+                    .filter(event => event.eventName === name)
+                    .forEach(event => subscriber.next(event.data))
+                }
+              )
+            : undefined
+
+        // the js sdk may only be loaded after the first subscriber
+        const web = this.webSdkLoaded.subscribe(sdk => {
+          sdk
+            .addListener(name, (data: any) => {
+              // only send the event if the js sdk is in use
+              if (this.activeSdkType === 'js') {
+                subscriber.next(data)
               }
+            })
+            .then(track)
+        })
 
-              return subscriber.next(data)
-            }
-          })
-          .then(l => {
-            listenerJs = l
-          })
-      }
-
-      return {
-        unsubscribe: () => {
-          listenerNative?.remove()
-          listenerJs?.remove()
+        return () => {
+          closed = true
+          handles.forEach(handle => handle.remove())
+          batches?.unsubscribe()
+          web.unsubscribe()
         }
-      }
-    })
+      }).pipe(share())
+    }
+
+    return this.sharedEvents[name]
+  }
+
+  private _listenerToObservable(
+    name: ObservableEvent,
+    transformFunc?: (data: any) => any
+  ): Observable<any> {
+    const events = this._sharedEvent(name)
+
+    return transformFunc ? events.pipe(map(transformFunc)) : events
   }
 
   private ensureInitialized() {
@@ -338,6 +469,53 @@ export class StripeTerminalPlugin {
     return terminal
   }
 
+  /**
+   * Returns the diagnostic lines captured by the native plugin, oldest first. These are the plugin's own lines, such as SDK errors and connection callbacks. The SDK's internal logging is not included, it only goes to Logcat. (Android only.)
+   *
+   * @param clear Whether to clear the captured lines after exporting them.
+   */
+  public async exportLogs(clear?: boolean): Promise<LogLine[]> {
+    this.ensureInitialized()
+
+    const data = await StripeTerminal.exportLogs({ clear })
+
+    return data?.lines ?? []
+  }
+
+  /**
+   * Returns the state and timing of the Tap to Pay warm-up started by `initialize`. (Android only.)
+   */
+  public async getLocalMobileWarmUp(): Promise<LocalMobileWarmUpStatus> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getLocalMobileWarmUp()
+  }
+
+  /**
+   * Returns where `initialize` spent its time: permission prompts, enabling Bluetooth and initializing the native SDK. (Android only.)
+   */
+  public async getStartupTrace(): Promise<StartupTrace> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getStartupTrace()
+  }
+
+  /**
+   * Stops the foreground service started by the `foregroundService` option. The Terminal and any connected reader stay up for as long as the app process does. (Android only.)
+   */
+  public async stopForegroundService(): Promise<void> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.stopForegroundService()
+  }
+
+  /**
+   * Emits when the Tap to Pay warm-up has connected the reader or failed. (Android only.)
+   */
+  public didFinishLocalMobileWarmUp(): Observable<LocalMobileWarmUpStatus> {
+    return this._listenerToObservable('didFinishLocalMobileWarmUp')
+  }
+
   public async cancelDiscoverReaders(): Promise<void> {
     try {
       this.listeners['readersDiscoveredNative']?.remove()
@@ -432,85 +610,165 @@ export class StripeTerminalPlugin {
       let nativeReaderList: Reader[] = []
       let jsReaderList: Reader[] = []
 
-      // reset the sdk type
-      this.selectedSdkType = 'native'
-
-      if (options.discoveryMethod === DiscoveryMethod.Internet) {
-        this.selectedSdkType = 'js'
+      if (
+        this.nativeInternetReaders &&
+        options.discoveryMethod === DiscoveryMethod.Both
+      ) {
+        subscriber.error(
+          new Error(
+            'DiscoveryMethod.Both is not supported with nativeInternetReaders. Discover Internet and BluetoothScan readers separately.'
+          )
+        )
+        return
       }
 
-      this.sdk
-        .addListener('readersDiscovered', (event: { readers?: Reader[] }) => {
-          const readers = event?.readers?.map(this.normalizeReader) || []
-          nativeReaderList = readers
-
-          // combine the reader list with the latest reader list from the js sdk
-          subscriber.next([...nativeReaderList, ...jsReaderList])
-        })
-        .then(l => {
-          this.listeners['readersDiscoveredNative'] = l
-        })
-
-      const nativeOptions: DiscoveryConfiguration = {
-        ...options,
-        discoveryMethod:
-          options.discoveryMethod === DiscoveryMethod.Both
-            ? DiscoveryMethod.BluetoothScan
-            : options.discoveryMethod
-      }
+      const usesWebSdk =
+        !this.nativeInternetReaders &&
+        (options.discoveryMethod === DiscoveryMethod.Internet ||
+          options.discoveryMethod === DiscoveryMethod.Both)
 
-      if (nativeOptions.discoveryMethod !== DiscoveryMethod.Internet) {
-        // remove locationId if the native discovery method is not internet
-        nativeOptions.locationId = undefined
-      }
+      const start = () => {
+        // reset the sdk type
+        this.selectedSdkType = 'native'
 
-      // start discovery
-      this.isDiscovering = true
-      this.sdk
-        .discoverReaders(nativeOptions)
-        .then(() => {
-          this.isDiscovering = false
-          subscriber.complete()
-        })
-        .catch((err: any) => {
-          this.isDiscovering = false
-          subscriber.error(err)
-        })
+        if (
+          usesWebSdk &&
+          options.discoveryMethod === DiscoveryMethod.Internet
+        ) {
+          this.selectedSdkType = 'js'
+        }
 
-      // if using the both method, search with the js sdk as well
-      if (
-        options.discoveryMethod === DiscoveryMethod.Both &&
-        this.stripeTerminalWeb
-      ) {
-        this.stripeTerminalWeb
+        this.sdk
           .addListener('readersDiscovered', (event: { readers?: Reader[] }) => {
             const readers = event?.readers?.map(this.normalizeReader) || []
-            jsReaderList = readers
+            nativeReaderList = readers
 
-            // combine the reader list with the latest reader list from the native sdk
+            // combine the reader list with the latest reader list from the js sdk
             subscriber.next([...nativeReaderList, ...jsReaderList])
           })
           .then(l => {
-            this.listeners['readersDiscoveredJs'] = l
+            this.listeners['readersDiscoveredNative'] = l
           })
 
-        const jsOptions: DiscoveryConfiguration = {
+        const nativeOptions: DiscoveryConfiguration = {
           ...options,
-          discoveryMethod: DiscoveryMethod.Internet // discovery method is always going to be internet for the js sdk, although, it really doesn't matter because it will be ignored anyway
+          discoveryMethod:
+            options.discoveryMethod === DiscoveryMethod.Both
+              ? DiscoveryMethod.BluetoothScan
+              : options.discoveryMethod
         }
 
-        // TODO: figure out what to do with errors and completion on this method. maybe just ignore them?
-        this.stripeTerminalWeb.discoverReaders(jsOptions)
+        if (nativeOptions.discoveryMethod !== DiscoveryMethod.Internet) {
+          // remove locationId if the native discovery method is not internet
+          nativeOptions.locationId = undefined
+        }
+
+        // start discovery
+        this.isDiscovering = true
+        this.sdk
+          .discoverReaders(nativeOptions)
+          .then(() => {
+            this.isDiscovering = false
+            subscriber.complete()
+          })
+          .catch((err: any) => {
+            this.isDiscovering = false
+            subscriber.error(err)
+          })
+
+        // if using the both method, search with the js sdk as well
+        if (
+          options.discoveryMethod === DiscoveryMethod.Both &&
+          this.stripeTerminalWeb
+        ) {
+          this.stripeTerminalWeb
+            .addListener(
+              'readersDiscovered',
+              (event: { readers?: Reader[] }) => {
+                const readers = event?.readers?.map(this.normalizeReader) || []
+                jsReaderList = readers
+
+                // combine the reader list with the latest reader list from the native sdk
+                subscriber.next([...nativeReaderList, ...jsReaderList])
+              }
+            )
+            .then(l => {
+              this.listeners['readersDiscoveredJs'] = l
+            })
+
+          const jsOptions: DiscoveryConfiguration = {
+            ...options,
+            discoveryMethod: DiscoveryMethod.Internet // discovery method is always going to be internet for the js sdk, although, it really doesn't matter because it will be ignored anyway
+          }
+
+          // TODO: figure out what to do with errors and completion on this method. maybe just ignore them?
+          this.stripeTerminalWeb.discoverReaders(jsOptions)
+        }
+      }
+
+      let unsubscribed = false
+
+      if (usesWebSdk) {
+        // the js sdk is loaded the first time an internet discovery starts
+        this.loadWebSdk()
+          .then(() => {
+            if (!unsubscribed) {
+              start()
+            }
+          })
+          .catch((err: any) => subscriber.error(err))
+      } else {
+        start()
       }
 
       return {
         unsubscribe: () => {
+          unsubscribed = true
           this.cancelDiscoverReaders()
         }
       }
     })
   }
 
+  /**
+   * Removes every persisted discovery result saved through the `cacheTtl` discovery option.
+   */
+  public async clearReaderCache(): Promise<void> {
+    this.ensureInitialized()
+
+    await Promise.all([
+      StripeTerminal.clearReaderCache(),
+      this.stripeTerminalWeb?.clearReaderCache()
+    ])
+  }
+
+  /**
+   * Returns a page of the readers found by the latest discovery, after the `filter` from the `DiscoveryConfiguration` has been applied.
+   *
+   * @param offset Index of the first reader to return.
+   * @param limit Maximum number of readers to return. Returns every remaining reader if not set.
+   */
+  public async getDiscoveredReaders(
+    offset?: number,
+    limit?: number
+  ): Promise<{ readers: Reader[]; total: number }> {
+    this.ensureInitialized()
+
+    const data = await this.sdk.getDiscoveredReaders({ offset, limit })
+
+    return {
+      readers: data?.readers?.map(this.normalizeReader) || [],
+      total: data?.total ?? 0
+    }
+  }
+
+  /**
+   * Emits when a native discovery stops because it timed out, a reader was connected, or the SDK completed it. Includes the time spent scanning. (Android only.)
+   */
+  public didFinishDiscovery(): Observable<DiscoveryResult> {
+    return this._listenerToObservable('didFinishDiscovery')
+  }
+
   /**
    * Attempts to connect to the given bluetooth reader.
    *
@@ -549,7 +807,8 @@ export class StripeTerminalPlugin {
 
     const data = await this.sdk.connectUsbReader({
       serialNumber: reader.serialNumber,
-      locationId: config.locationId
+      locationId: config.locationId,
+      deadline: config.deadline
     })
 
     return this.objectExists(data?.reader)
@@ -571,7 +830,8 @@ export class StripeTerminalPlugin {
 
     const data = await this.sdk.connectHandoffReader({
       serialNumber: reader.serialNumber,
-      locationId: config.locationId
+      locationId: config.locationId,
+      deadline: config.deadline
     })
 
     return this.objectExists(data?.reader)
@@ -610,8 +870,13 @@ export class StripeTerminalPlugin {
   ): Promise<Reader | null> {
     this.ensureInitialized()
 
-    // if connecting to an internet reader, make sure to switch to the JS SDK
-    this.selectedSdkType = 'js'
+    if (this.nativeInternetReaders) {
+      this.selectedSdkType = 'native'
+    } else {
+      // if connecting to an internet reader, make sure to switch to the JS SDK
+      await this.loadWebSdk()
+      this.selectedSdkType = 'js'
+    }
 
     const data = await this.sdk.connectInternetReader({
       serialNumber: reader.serialNumber,
@@ -658,10 +923,114 @@ export class StripeTerminalPlugin {
     return data?.status
   }
 
-  public async disconnectReader(): Promise<void> {
+  public async disconnectReader(options?: CallOptions): Promise<void> {
+    this.ensureInitialized()
+
+    return await this.sdk.disconnectReader(options)
+  }
+
+  /**
+   * Configures native retries with backoff and a circuit breaker for a network-bound method, so transient failures don't have to be retried through the bridge. (Android only.)
+   */
+  public async setRetryPolicy(
+    options: RetryPolicyOptions
+  ): Promise<RetryPolicy> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.setRetryPolicy(options)
+  }
+
+  /**
+   * Returns the retry policy and circuit state for a method. (Android only.)
+   */
+  public async getRetryPolicy(method: RetryableMethod): Promise<RetryPolicy> {
     this.ensureInitialized()
 
-    return await this.sdk.disconnectReader()
+    return await StripeTerminal.getRetryPolicy({ method })
+  }
+
+  /**
+   * Returns how many native calls are still waiting on the SDK and how old the oldest one is. (Android only.)
+   */
+  public async getPendingCalls(): Promise<PendingCalls> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    return await StripeTerminal.getPendingCalls()
+  }
+
+  /**
+   * Queries the local ledger of payments that finished `processPayment`, without any network calls. Returns the matching transactions oldest first, plus totals per currency and status. (Android only.)
+   */
+  public async queryTransactions(query?: LedgerQuery): Promise<LedgerResult> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.queryTransactions(query)
+  }
+
+  /**
+   * Starts, reconfigures or stops writing periodic metrics snapshots (method latencies, event counts, discovery, connect and serialization times) to JSON lines files in the app's files directory. (Android only.)
+   */
+  public async setMetricsOptions(
+    options: MetricsOptions
+  ): Promise<MetricsStatus> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.setMetricsOptions(options)
+  }
+
+  /**
+   * Writes the pending metrics snapshot and returns the absolute paths of the metrics files, oldest first, so they can be uploaded. (Android only.)
+   */
+  public async getMetricsFiles(): Promise<string[]> {
+    this.ensureInitialized()
+
+    const data = await StripeTerminal.getMetricsFiles()
+
+    return data?.files ?? []
+  }
+
+  /**
+   * Starts recording a timestamped trace of the SDK callbacks, SDK results, plugin calls and events the plugin sends. Entries past `maxEntries` (default 10000) are counted as dropped rather than recorded. (Android only.)
+   */
+  public async startTraceRecording(maxEntries?: number): Promise<void> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.startTraceRecording({ maxEntries })
+  }
+
+  /**
+   * Stops recording and saves the trace as JSON in the app's cache directory. (Android only.)
+   */
+  public async stopTraceRecording(): Promise<TraceRecording> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.stopTraceRecording()
+  }
+
+  /**
+   * Feeds a saved trace back into the plugin, `speed` times as fast as it was recorded (`0` for as fast as possible), and reports how long the plugin took to handle it. The callbacks run through the same event handlers as live ones, but the events they build are never sent to listeners, and the Terminal state is left alone. (Android only.)
+   */
+  public async replayTrace(
+    path: string,
+    speed?: number
+  ): Promise<TraceReplayReport> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.replayTrace({ path, speed })
+  }
+
+  /**
+   * Removes transactions from the local ledger, either all of them or those recorded before `before` (milliseconds since the epoch). (Android only.)
+   *
+   * @returns The number of transactions removed.
+   */
+  public async clearTransactions(before?: number): Promise<number> {
+    this.ensureInitialized()
+
+    const data = await StripeTerminal.clearTransactions({ before })
+
+    return data?.removed ?? 0
   }
 
   public connectionStatus(): Observable<ConnectionStatus> {
@@ -682,39 +1051,15 @@ export class StripeTerminalPlugin {
           subscriber.error(err)
         })
 
-      let listenerNative: PluginListenerHandle
-      let listenerJs: PluginListenerHandle
-
       // then listen for changes
-      StripeTerminal.addListener('didChangeConnectionStatus', (data: any) => {
-        // only send an event if we are currently on this sdk type
-        if (this.activeSdkType === 'native') {
+      const changes = this._sharedEvent('didChangeConnectionStatus').subscribe(
+        (data: any) => {
           hasSentEvent = true
           subscriber.next(data?.status)
         }
-      }).then(l => {
-        listenerNative = l
-      })
-
-      // then listen for js changes
-      this.stripeTerminalWeb
-        ?.addListener('didChangeConnectionStatus', (data: any) => {
-          // only send an event if we are currently on this sdk type
-          if (this.activeSdkType === 'js') {
-            hasSentEvent = true
-            subscriber.next(data?.status)
-          }
-        })
-        .then(l => {
-          listenerJs = l
-        })
+      )
 
-      return {
-        unsubscribe: () => {
-          listenerNative?.remove()
-          listenerJs?.remove()
-        }
-      }
+      return () => changes.unsubscribe()
     })
   }
 
@@ -730,6 +1075,106 @@ export class StripeTerminalPlugin {
     return await this.sdk.cancelInstallUpdate()
   }
 
+  /**
+   * Holds optional reader software updates natively until the lane is idle, instead of leaving installs to JS. (Android only.)
+   */
+  public async setUpdateSchedule(
+    options: UpdateScheduleOptions
+  ): Promise<UpdateScheduleStatus> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    return await StripeTerminal.setUpdateSchedule(options)
+  }
+
+  /**
+   * Returns the update scheduler configuration, the held update and recent install durations. (Android only.)
+   */
+  public async getUpdateSchedule(): Promise<UpdateScheduleStatus> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getUpdateSchedule()
+  }
+
+  /**
+   * Designates a discovered reader as the backup for the connected one. If the connected reader disconnects unexpectedly, the backup is connected natively with the same connection configuration and `didFailoverReader` is emitted. The reader that failed becomes the new backup. Pass `null` to stop failing over.
+   *
+   * Covers readers connected through the native SDK: Bluetooth, USB, handoff and Tap to Pay readers, and internet readers when `nativeInternetReaders` is set. The backup must have been found by the last native discovery. (Android only.)
+   */
+  public async setBackupReader(
+    serialNumber: string | null
+  ): Promise<ReaderFailoverStatus> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    return await StripeTerminal.setBackupReader({ serialNumber })
+  }
+
+  /**
+   * Returns the backup reader and the outcome of the last failover. (Android only.)
+   */
+  public async getFailoverStatus(): Promise<ReaderFailoverStatus> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getFailoverStatus()
+  }
+
+  /**
+   * Emits the outcome and timing of each failover to the backup reader. (Android only.)
+   */
+  public didFailoverReader(): Observable<ReaderFailoverResult> {
+    return this._listenerToObservable('didFailoverReader')
+  }
+
+  /**
+   * Returns the uptime, unexpected disconnects and reconnect latencies recorded for each reader, or for one reader if a serial number is given. (Android only.)
+   */
+  public async getReaderStats(serialNumber?: string): Promise<ReaderStats[]> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    const data = await StripeTerminal.getReaderStats({ serialNumber })
+
+    return data.readers
+  }
+
+  /**
+   * Resets the recorded reader statistics. (Android only.)
+   */
+  public async clearReaderStats(): Promise<void> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.clearReaderStats()
+  }
+
+  /**
+   * Probes the connected internet reader while it is idle and reconnects it when it stops answering, so the next sale doesn't find it stale. Only readers connected through the native SDK are monitored, so this needs the `nativeInternetReaders` option. (Android only.)
+   */
+  public async setReaderHealthOptions(
+    options: ReaderHealthOptions
+  ): Promise<ReaderHealth> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    return await StripeTerminal.setReaderHealthOptions(options)
+  }
+
+  /**
+   * Returns the reader health state, probe latencies and recent connection status changes. (Android only.)
+   */
+  public async getReaderHealth(): Promise<ReaderHealth> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getReaderHealth()
+  }
+
+  /**
+   * Emits the reader health each time its state changes. (Android only.)
+   */
+  public didReportReaderHealth(): Observable<ReaderHealth> {
+    return this._listenerToObservable('didReportReaderHealth')
+  }
+
   public didRequestReaderInput(): Observable<ReaderInputOptions> {
     return this._listenerToObservable('didRequestReaderInput', (data: any) => {
       return this.translateAndroidReaderInput(data)
@@ -745,6 +1190,27 @@ export class StripeTerminalPlugin {
     )
   }
 
+  /**
+   * Emits only the fields of the connected reader that changed, such as the battery level, software version, update availability or network status, so the reader doesn't have to be fetched again with `getConnectedReader`. (Android only.)
+   */
+  public didChangeReader(): Observable<ReaderChange> {
+    return this._listenerToObservable(
+      'didChangeReader',
+      (data: ReaderChange) => {
+        const changes = data.changes
+
+        if (changes.batteryLevel === 0) {
+          changes.batteryLevel = null
+        }
+        if (changes.deviceSoftwareVersion === 'unknown') {
+          changes.deviceSoftwareVersion = null
+        }
+
+        return data
+      }
+    )
+  }
+
   public didReportAvailableUpdate(): Observable<ReaderSoftwareUpdate> {
     return this._listenerToObservable(
       'didReportAvailableUpdate',
@@ -775,21 +1241,30 @@ export class StripeTerminalPlugin {
   public didFinishInstallingUpdate(): Observable<{
     update?: ReaderSoftwareUpdate
     error?: string
+    duration?: number
   }> {
     return this._listenerToObservable(
       'didFinishInstallingUpdate',
-      (data: { update?: ReaderSoftwareUpdate; error?: string }) => {
+      (data: {
+        update?: ReaderSoftwareUpdate
+        error?: string
+        duration?: number
+      }) => {
         return this.objectExists(data)
       }
     )
   }
 
   public async retrievePaymentIntent(
-    clientSecret: string
+    clientSecret: string,
+    options?: CallOptions
   ): Promise<PaymentIntent | null> {
     this.ensureInitialized()
 
-    const data = await this.sdk.retrievePaymentIntent({ clientSecret })
+    const data = await this.sdk.retrievePaymentIntent({
+      clientSecret,
+      ...options
+    })
 
     const pi = this.objectExists(data?.intent)
 
@@ -825,11 +1300,13 @@ export class StripeTerminalPlugin {
     return await this.sdk.cancelCollectPaymentMethod()
   }
 
-  public async processPayment(): Promise<PaymentIntent | null> {
+  public async processPayment(
+    options?: CallOptions
+  ): Promise<PaymentIntent | null> {
     try {
       this.ensureInitialized()
 
-      const data = await this.sdk.processPayment()
+      const data = await this.sdk.processPayment(options)
 
       const pi = this.objectExists(data?.intent)
 
@@ -847,6 +1324,65 @@ export class StripeTerminalPlugin {
     }
   }
 
+  /**
+   * Collects a refund of `amount` of the charge on the connected reader. Follow with `processRefund`. (Android only.)
+   */
+  public async collectRefundPaymentMethod(
+    request: RefundRequest
+  ): Promise<void> {
+    this.ensureInitialized()
+
+    this.selectedSdkType = 'native'
+
+    return await StripeTerminal.collectRefundPaymentMethod(request)
+  }
+
+  public async cancelCollectRefundPaymentMethod(): Promise<void> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.cancelCollectRefundPaymentMethod()
+  }
+
+  /**
+   * Processes the refund collected by `collectRefundPaymentMethod`. (Android only.)
+   */
+  public async processRefund(): Promise<Refund | null> {
+    this.ensureInitialized()
+
+    const data = await StripeTerminal.processRefund()
+
+    return this.objectExists(data?.refund)
+  }
+
+  /**
+   * Collects and processes the refunds one after the other on the connected reader, without returning to JS in between. Each finished refund, successful or not, is emitted by `didProcessRefund`. A failed refund doesn't stop the queue, `cancelProcessRefunds` does. (Android only.)
+   */
+  public async processRefunds(
+    refunds: RefundRequest[]
+  ): Promise<RefundQueueSummary> {
+    this.ensureInitialized()
+
+    this.selectedSdkType = 'native'
+
+    return await StripeTerminal.processRefunds({ refunds })
+  }
+
+  /**
+   * Stops `processRefunds` after the refund in progress. A refund still waiting for its card is canceled. (Android only.)
+   */
+  public async cancelProcessRefunds(): Promise<void> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.cancelProcessRefunds()
+  }
+
+  /**
+   * Emits the outcome and timing of each refund processed by `processRefunds`. (Android only.)
+   */
+  public didProcessRefund(): Observable<RefundResult> {
+    return this._listenerToObservable('didProcessRefund')
+  }
+
   public async clearCachedCredentials(): Promise<void> {
     this.ensureInitialized()
 
@@ -939,9 +1475,9 @@ export class StripeTerminalPlugin {
    *
    * In your implementation of this method, you should notify your user that the reader disconnected and that reconnection attempts are being made.
    *
-   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`
+   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`, or for other readers, an enabled `setAutoReconnectPolicy`, in which case the reader and the attempt count are emitted.
    */
-  public didStartReaderReconnect(): Observable<void> {
+  public didStartReaderReconnect(): Observable<ReaderReconnectEvent | null> {
     return this._listenerToObservable('didStartReaderReconnect')
   }
 
@@ -950,9 +1486,9 @@ export class StripeTerminalPlugin {
    *
    * In your implementation of this method, you should notify your user that reader connection has been re-established.
    *
-   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`
+   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`, or for other readers, an enabled `setAutoReconnectPolicy`, in which case the attempts and their latencies are emitted.
    */
-  public didSucceedReaderReconnect(): Observable<void> {
+  public didSucceedReaderReconnect(): Observable<ReaderReconnectEvent | null> {
     return this._listenerToObservable('didSucceedReaderReconnect')
   }
 
@@ -961,12 +1497,30 @@ export class StripeTerminalPlugin {
    *
    * In your implementation of this method, you should notify your user that the reader has disconnected.
    *
-   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`
+   * Requires `autoReconnectOnUnexpectedDisconnect` is set to true in the `BluetoothConnectionConfiguration`, or for other readers, an enabled `setAutoReconnectPolicy`, in which case the attempts, their latencies and the last error are emitted.
    */
-  public didFailReaderReconnect(): Observable<void> {
+  public didFailReaderReconnect(): Observable<ReaderReconnectEvent | null> {
     return this._listenerToObservable('didFailReaderReconnect')
   }
 
+  /**
+   * Reconnects USB, handoff and Tap to Pay readers natively after an unexpected disconnect, with the configuration they were connected with. Internet readers are covered only when `nativeInternetReaders` is set, since otherwise the JS SDK connects them. Progress is reported by `didStartReaderReconnect`, `didSucceedReaderReconnect` and `didFailReaderReconnect`. A backup reader set with `setBackupReader` is tried first. (Android only.)
+   */
+  public async setAutoReconnectPolicy(
+    options: AutoReconnectPolicyOptions
+  ): Promise<AutoReconnectPolicy> {
+    this.ensureInitialized()
+
+    // always native, the js sdk has no equivalent even while it is active
+    return await StripeTerminal.setAutoReconnectPolicy(options)
+  }
+
+  public async getAutoReconnectPolicy(): Promise<AutoReconnectPolicy> {
+    this.ensureInitialized()
+
+    return await StripeTerminal.getAutoReconnectPolicy()
+  }
+
   /**
    * Cancel auto-reconnection
    */
@@ -3,6 +3,7 @@ import { WebPlugin } from '@capacitor/core'
 import {
   StripeTerminalInterface,
   DiscoveryConfiguration,
+  DiscoveryFilter,
   Reader,
   ConnectionStatus,
   PaymentIntent,
@@ -18,7 +19,32 @@ import {
   SimulatorConfiguration,
   PermissionStatus,
   Cart,
-  CollectConfig
+  CollectConfig,
+  LedgerQuery,
+  LedgerResult,
+  EventBatchingOptions,
+  LocalMobileWarmUpStatus,
+  LogLine,
+  MetricsOptions,
+  MetricsStatus,
+  PendingCalls,
+  ReaderStats,
+  AutoReconnectPolicy,
+  AutoReconnectPolicyOptions,
+  ReaderFailoverStatus,
+  ReaderHealth,
+  ReaderHealthOptions,
+  RetryableMethod,
+  Refund,
+  RefundQueueSummary,
+  RefundRequest,
+  StartupTrace,
+  TraceRecording,
+  TraceReplayReport,
+  RetryPolicy,
+  RetryPolicyOptions,
+  UpdateScheduleOptions,
+  UpdateScheduleStatus
 } from './definitions'
 import {
   loadStripeTerminal,
@@ -155,6 +181,7 @@ export class StripeTerminalWeb
   private currentClientSecret: string | null = null
   private currentPaymentIntent: ISdkManagedPaymentIntent | null = null
   private currentConnectionToken: string | null = null
+  private discoveredReaders: Reader[] = []
 
   private connectionTokenCompletionSubject = new Subject<TokenResponse>()
 
@@ -203,6 +230,31 @@ export class StripeTerminalWeb
     })
   }
 
+  async exportLogs(_options?: {
+    clear?: boolean
+  }): Promise<{ lines: LogLine[] }> {
+    // no equivalent
+    console.warn('exportLogs is only available on Android.')
+    return { lines: [] }
+  }
+
+  async getLocalMobileWarmUp(): Promise<LocalMobileWarmUpStatus> {
+    // no equivalent
+    console.warn('getLocalMobileWarmUp is only available on Android.')
+    return { state: 'idle', discoveryTime: 0, connectTime: 0, totalTime: 0 }
+  }
+
+  async getStartupTrace(): Promise<StartupTrace> {
+    // no equivalent
+    console.warn('getStartupTrace is only available on Android.')
+    return { total: 0, phases: [] }
+  }
+
+  async stopForegroundService(): Promise<void> {
+    // no equivalent
+    console.warn('stopForegroundService is only available on Android.')
+  }
+
   async initialize(): Promise<void> {
     const ST = await loadStripeTerminal()
 
@@ -272,9 +324,64 @@ export class StripeTerminalWeb
     }
   }
 
+  private readerCacheKey(locationId?: string): string {
+    return `StripeTerminalReaderCache:${locationId ?? ''}`
+  }
+
+  private getCachedReaders(
+    locationId: string | undefined,
+    ttl: number
+  ): Reader[] | null {
+    try {
+      const json = localStorage.getItem(this.readerCacheKey(locationId))
+
+      if (!json) {
+        return null
+      }
+
+      const entry: { savedAt: number; readers: Reader[] } = JSON.parse(json)
+
+      if (Date.now() - entry.savedAt > ttl) {
+        return null
+      }
+
+      return entry.readers
+    } catch (err) {
+      // a broken cache entry is the same as no entry
+      return null
+    }
+  }
+
+  private setCachedReaders(locationId: string | undefined, readers: Reader[]) {
+    try {
+      localStorage.setItem(
+        this.readerCacheKey(locationId),
+        JSON.stringify({ savedAt: Date.now(), readers })
+      )
+    } catch (err) {
+      // storage may be full or unavailable, caching is best effort
+    }
+  }
+
+  async clearReaderCache(): Promise<void> {
+    Object.keys(localStorage)
+      .filter(key => key.startsWith(this.readerCacheKey()))
+      .forEach(key => localStorage.removeItem(key))
+  }
+
   async discoverReaders(options: DiscoveryConfiguration): Promise<void> {
     const sdk = this.ensureInitialized()
 
+    const cacheTtl = (options.cacheTtl ?? 0) * 1000
+    if (cacheTtl > 0) {
+      const cachedReaders = this.getCachedReaders(options.locationId, cacheTtl)
+
+      if (cachedReaders) {
+        // show the cached readers while the live discovery refreshes them
+        this.emitDiscoveredReaders(cachedReaders, options, true)
+      }
+    }
+
     this.simulated = !!options.simulated
     const discoveryConfig: InternetMethodConfiguration = {
       simulated: options.simulated,
@@ -290,17 +397,81 @@ export class StripeTerminalWeb
         this.translateReader.bind(this)
       )
 
-      this.notifyListeners('readersDiscovered', {
-        readers
-      })
+      // the cache keeps every reader so a different filter still finds them
+      if (cacheTtl > 0) {
+        this.setCachedReaders(options.locationId, readers ?? [])
+      }
+
+      this.emitDiscoveredReaders(readers ?? [], options, false)
     } else {
       const error: ErrorResponse = discoverResult as ErrorResponse
       throw error.error
     }
   }
 
+  /**
+   * Applies the discovery filter and page size the same way the Android plugin
+   * does, so they also work when internet discovery runs through the JS SDK.
+   */
+  private emitDiscoveredReaders(
+    readers: Reader[],
+    options: DiscoveryConfiguration,
+    cached: boolean
+  ) {
+    const filter = options.filter
+    this.discoveredReaders = filter
+      ? readers.filter(reader => this.matchesFilter(reader, filter))
+      : readers
+
+    const pageSize = options.pageSize ?? 0
+    this.notifyListeners('readersDiscovered', {
+      readers:
+        pageSize > 0
+          ? this.discoveredReaders.slice(0, pageSize)
+          : this.discoveredReaders,
+      total: this.discoveredReaders.length,
+      cached
+    })
+  }
+
+  private matchesFilter(reader: Reader, filter: DiscoveryFilter): boolean {
+    if (
+      filter.deviceTypes?.length &&
+      !filter.deviceTypes.includes(reader.deviceType)
+    ) {
+      return false
+    }
+
+    if (filter.locationId && reader.locationId !== filter.locationId) {
+      return false
+    }
+
+    if (filter.labelPrefix && !reader.label?.startsWith(filter.labelPrefix)) {
+      return false
+    }
+
+    if (filter.onlineOnly && reader.status !== ReaderNetworkStatus.Online) {
+      return false
+    }
+
+    return true
+  }
+
   async cancelDiscoverReaders(): Promise<void> {}
 
+  async getDiscoveredReaders(options?: {
+    offset?: number
+    limit?: number
+  }): Promise<{ readers: Reader[]; total: number }> {
+    const offset = options?.offset ?? 0
+    const end = options?.limit ? offset + options.limit : undefined
+
+    return {
+      readers: this.discoveredReaders.slice(offset, end),
+      total: this.discoveredReaders.length
+    }
+  }
+
   async connectInternetReader(options: {
     serialNumber: string
     ipAddress?: string
@@ -406,6 +577,117 @@ export class StripeTerminalWeb
     }
   }
 
+  async getPendingCalls(): Promise<PendingCalls> {
+    // no equivalent
+    console.warn('getPendingCalls is only available on Android.')
+    return { outstanding: 0, oldestAge: 0, calls: [] }
+  }
+
+  async queryTransactions(_options?: LedgerQuery): Promise<LedgerResult> {
+    // no equivalent
+    console.warn('queryTransactions is only available on Android.')
+    return { transactions: [], totals: [] }
+  }
+
+  async setMetricsOptions(_options: MetricsOptions): Promise<MetricsStatus> {
+    // no equivalent
+    console.warn('setMetricsOptions is only available on Android.')
+    return { enabled: false, interval: 60, maxFileSize: 262144, maxFiles: 5 }
+  }
+
+  async setEventBatching(
+    _options: EventBatchingOptions
+  ): Promise<EventBatchingOptions> {
+    // events are already delivered in-process on the web
+    return { window: 0, events: [] }
+  }
+
+  async getMetricsFiles(): Promise<{ files: string[] }> {
+    // no equivalent
+    console.warn('getMetricsFiles is only available on Android.')
+    return { files: [] }
+  }
+
+  async collectRefundPaymentMethod(_options: RefundRequest): Promise<void> {
+    throw this.unimplemented('Refunds are only available on Android.')
+  }
+
+  async cancelCollectRefundPaymentMethod(): Promise<void> {
+    // nothing can be collecting
+  }
+
+  async processRefund(): Promise<{ refund: Refund; processTime: number }> {
+    throw this.unimplemented('Refunds are only available on Android.')
+  }
+
+  async processRefunds(_options: {
+    refunds: RefundRequest[]
+  }): Promise<RefundQueueSummary> {
+    throw this.unimplemented('Refunds are only available on Android.')
+  }
+
+  async cancelProcessRefunds(): Promise<void> {
+    // nothing can be processing
+  }
+
+  async startTraceRecording(_options?: { maxEntries?: number }): Promise<void> {
+    // no equivalent
+    console.warn('startTraceRecording is only available on Android.')
+  }
+
+  async stopTraceRecording(): Promise<TraceRecording> {
+    // no equivalent
+    console.warn('stopTraceRecording is only available on Android.')
+    return { path: '', entries: 0, dropped: 0 }
+  }
+
+  async replayTrace(_options: {
+    path: string
+    speed?: number
+  }): Promise<TraceReplayReport> {
+    // no equivalent
+    console.warn('replayTrace is only available on Android.')
+    const timing = { count: 0, total: 0, max: 0, avg: 0 }
+    return {
+      entries: 0,
+      replayed: 0,
+      skipped: 0,
+      speed: _options.speed ?? 1,
+      duration: 0,
+      overhead: timing,
+      lag: timing,
+      byName: {}
+    }
+  }
+
+  async clearTransactions(_options?: {
+    before?: number
+  }): Promise<{ removed: number }> {
+    // no equivalent
+    console.warn('clearTransactions is only available on Android.')
+    return { removed: 0 }
+  }
+
+  async setRetryPolicy(_options: RetryPolicyOptions): Promise<RetryPolicy> {
+    // no equivalent
+    console.warn('setRetryPolicy is only available on Android.')
+    return this.getRetryPolicy()
+  }
+
+  async getRetryPolicy(_options?: {
+    method: RetryableMethod
+  }): Promise<RetryPolicy> {
+    return {
+      maxAttempts: 1,
+      initialDelay: 0,
+      maxDelay: 0,
+      retryableErrorCodes: [],
+      failureThreshold: 0,
+      resetTimeout: 0,
+      circuit: { open: false, failures: 0 }
+    }
+  }
+
   async disconnectReader(): Promise<void> {
     const sdk = this.ensureInitialized()
 
@@ -422,6 +704,82 @@ export class StripeTerminalWeb
     console.warn('cancelInstallUpdate is only available for Bluetooth readers.')
   }
 
+  async setUpdateSchedule(
+    _options: UpdateScheduleOptions
+  ): Promise<UpdateScheduleStatus> {
+    // no equivalent
+    console.warn('setUpdateSchedule is only available on Android.')
+    return this.getUpdateSchedule()
+  }
+
+  async getUpdateSchedule(): Promise<UpdateScheduleStatus> {
+    return {
+      enabled: false,
+      idleMinutes: 0,
+      windowStart: null,
+      windowEnd: null,
+      progressInterval: 0,
+      scheduledUpdate: null,
+      installs: []
+    }
+  }
+
+  async setBackupReader(_options: {
+    serialNumber: string | null
+  }): Promise<ReaderFailoverStatus> {
+    // no equivalent
+    console.warn('setBackupReader is only available on Android.')
+    return this.getFailoverStatus()
+  }
+
+  async getFailoverStatus(): Promise<ReaderFailoverStatus> {
+    return {
+      backupSerialNumber: null,
+      inProgress: false,
+      failovers: 0,
+      failures: 0,
+      lastFailover: null
+    }
+  }
+
+  async getReaderStats(_options?: {
+    serialNumber?: string
+  }): Promise<{ readers: ReaderStats[] }> {
+    // no equivalent
+    console.warn('getReaderStats is only available on Android.')
+    return { readers: [] }
+  }
+
+  async clearReaderStats(): Promise<void> {
+    // no equivalent
+  }
+
+  async setReaderHealthOptions(
+    _options: ReaderHealthOptions
+  ): Promise<ReaderHealth> {
+    // no equivalent
+    console.warn('setReaderHealthOptions is only available on Android.')
+    return this.getReaderHealth()
+  }
+
+  async getReaderHealth(): Promise<ReaderHealth> {
+    return {
+      enabled: false,
+      interval: 0,
+      failureThreshold: 0,
+      reconnect: false,
+      state: 'disconnected',
+      consecutiveFailures: 0,
+      probes: 0,
+      failures: 0,
+      reconnects: 0,
+      lastReconnectTime: -1,
+      latency: { last: -1, avg: -1, max: -1 },
+      samples: [],
+      transitions: []
+    }
+  }
+
   async retrievePaymentIntent(options: {
     clientSecret: string
   }): Promise<{ intent: PaymentIntent | null }> {
@@ -688,6 +1046,24 @@ export class StripeTerminalWeb
     }
   }
 
+  async setAutoReconnectPolicy(
+    _options: AutoReconnectPolicyOptions
+  ): Promise<AutoReconnectPolicy> {
+    // no equivalent
+    console.warn('setAutoReconnectPolicy is only available on Android.')
+    return this.getAutoReconnectPolicy()
+  }
+
+  async getAutoReconnectPolicy(): Promise<AutoReconnectPolicy> {
+    return {
+      enabled: false,
+      maxAttempts: 0,
+      initialDelay: 0,
+      maxDelay: 0,
+      reconnecting: false
+    }
+  }
+
   async cancelAutoReconnect(): Promise<void> {
     // no equivalent
     console.warn('cancelAutoReconnect is only available for Bluetooth readers.')